@@ -0,0 +1,113 @@
+package com.gui.estore.ordersservice.commands;
+
+import com.gui.estore.ordersservice.mappers.OrderMapper;
+import com.gui.estore.ordersservice.model.OrderStatus;
+import org.axonframework.commandhandling.SimpleCommandBus;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.axonframework.common.caching.WeakReferenceCache;
+import org.axonframework.common.transaction.NoTransactionManager;
+import org.axonframework.config.AggregateConfigurer;
+import org.axonframework.config.Configuration;
+import org.axonframework.config.Configurer;
+import org.axonframework.config.DefaultConfigurer;
+import org.axonframework.disruptor.commandhandling.DisruptorCommandBus;
+import org.axonframework.eventhandling.DomainEventMessage;
+import org.axonframework.eventhandling.GenericDomainEventMessage;
+import org.axonframework.eventsourcing.GenericAggregateFactory;
+import org.axonframework.eventsourcing.eventstore.inmemory.InMemoryEventStorageEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// COMMAND/s de OrderAggregate con SimpleCommandBus frente a DisruptorCommandBus (orders.command-bus.mode)
+// cada operación envía COMMANDS_PER_OP ApproveOrderCommand sin esperar uno a uno, uno por cada una de AGGREGATES órdenes
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandBusBenchmark {
+
+    private static final int AGGREGATES = 1000;
+    private static final int COMMANDS_PER_OP = 1000;
+
+    @Param({"simple", "disruptor"})
+    String mode;
+
+    private Configuration configuration;
+    private CommandGateway commandGateway;
+    private String[] orderIds;
+
+    // configuración nueva por iteración: el event store en memoria crece con cada COMMAND
+    @Setup(Level.Iteration)
+    public void setUp() {
+
+        Configurer configurer = DefaultConfigurer.defaultConfiguration()
+                .configureEmbeddedEventStore(c -> new InMemoryEventStorageEngine());
+
+        if ("disruptor".equals(mode)) {
+            configurer.configureCommandBus(c -> DisruptorCommandBus.builder()
+                            .transactionManager(NoTransactionManager.INSTANCE)
+                            .cache(new WeakReferenceCache())
+                            .invokerThreadCount(2)
+                            .publisherThreadCount(1)
+                            .build())
+                    .configureAggregate(AggregateConfigurer.defaultConfiguration(OrderAggregate.class)
+                            .configureRepository(c -> ((DisruptorCommandBus) c.commandBus())
+                                    .createRepository(c.eventStore(), new GenericAggregateFactory<>(OrderAggregate.class))));
+        } else {
+            configurer.configureCommandBus(c -> SimpleCommandBus.builder().build())
+                    .configureAggregate(OrderAggregate.class);
+        }
+
+        configuration = configurer.buildConfiguration();
+        configuration.start();
+        commandGateway = configuration.commandGateway();
+        orderIds = new String[AGGREGATES];
+    }
+
+    // AGGREGATES órdenes nuevas por invocación, cada una con solo su OrderCreatedEvent: si se aprobaran
+    // siempre las mismas, cada invocación cargaría un evento más por orden que la anterior
+    // se escriben directo en el event store, sin COMMANDS, y no entran en la medida
+    @Setup(Level.Invocation)
+    public void createOrders() {
+
+        List<DomainEventMessage<?>> events = new ArrayList<>(AGGREGATES);
+        for (int i = 0; i < AGGREGATES; i++) {
+            orderIds[i] = UUID.randomUUID().toString();
+            events.add(new GenericDomainEventMessage<>(OrderAggregate.class.getSimpleName(), orderIds[i], 0,
+                    OrderMapper.toOrderCreatedEvent(CreateOrderCommand.builder()
+                            .orderId(orderIds[i])
+                            .userId("27b95829-4f3f-4ddf-8983-151ba010e35b")
+                            .productId("product-1")
+                            .quantity(2)
+                            .addressId("address-1")
+                            .orderStatus(OrderStatus.CREATED)
+                            .build())));
+        }
+
+        configuration.eventStore().publish(events);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        configuration.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS_PER_OP)
+    public void approveOrders() {
+
+        CompletableFuture<?>[] results = new CompletableFuture<?>[COMMANDS_PER_OP];
+        for (int i = 0; i < COMMANDS_PER_OP; i++) {
+            results[i] = commandGateway.send(new ApproveOrderCommand(orderIds[i % AGGREGATES]));
+        }
+
+        CompletableFuture.allOf(results).join();
+    }
+}
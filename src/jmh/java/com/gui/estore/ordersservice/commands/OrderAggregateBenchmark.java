@@ -0,0 +1,120 @@
+package com.gui.estore.ordersservice.commands;
+
+import com.gui.estore.ordersservice.core.events.OrderApprovedEvent;
+import com.gui.estore.ordersservice.mappers.OrderMapper;
+import com.gui.estore.ordersservice.model.OrderStatus;
+import org.axonframework.config.Configuration;
+import org.axonframework.config.DefaultConfigurer;
+import org.axonframework.eventhandling.DomainEventMessage;
+import org.axonframework.eventhandling.GenericDomainEventMessage;
+import org.axonframework.eventsourcing.eventstore.inmemory.InMemoryEventStorageEngine;
+import org.axonframework.messaging.unitofwork.DefaultUnitOfWork;
+import org.axonframework.modelling.command.Repository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// COMMAND handling de OrderAggregate y carga por replay de sus eventos
+// event store en memoria: se mide Axon + AGGREGATE, sin Axon Server ni BD
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderAggregateBenchmark {
+
+    private static final String AGGREGATE_TYPE = OrderAggregate.class.getSimpleName();
+
+    // eventos del AGGREGATE que se cargan en replay y antes de cada approveOrder
+    @Param({"10", "100", "1000"})
+    int eventCount;
+
+    private Configuration configuration;
+    private Repository<OrderAggregate> repository;
+    private String replayOrderId;
+
+    // configuración nueva por iteración para que el event store no crezca sin límite
+    // replay solo lee su orden: ningún benchmark le añade eventos y todas las invocaciones cargan eventCount
+    @Setup(Level.Iteration)
+    public void setUp() {
+
+        configuration = DefaultConfigurer.defaultConfiguration()
+                .configureEmbeddedEventStore(c -> new InMemoryEventStorageEngine())
+                .configureAggregate(OrderAggregate.class)
+                .buildConfiguration();
+        configuration.start();
+
+        repository = configuration.repository(OrderAggregate.class);
+
+        replayOrderId = UUID.randomUUID().toString();
+        appendHistory(replayOrderId);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        configuration.shutdown();
+    }
+
+    // orden nueva con eventCount eventos antes de cada approveOrder: si se aprobara siempre la misma,
+    // cada invocación cargaría un evento más que la anterior
+    // el setup va directo al event store, sin COMMANDS, y no entra en la medida
+    @State(Scope.Thread)
+    public static class ApproveOrder {
+
+        private String orderId;
+
+        @Setup(Level.Invocation)
+        public void setUp(OrderAggregateBenchmark benchmark) {
+            orderId = UUID.randomUUID().toString();
+            benchmark.appendHistory(orderId);
+        }
+    }
+
+    @Benchmark
+    public Object createOrder() {
+        return configuration.commandGateway().sendAndWait(createOrderCommand(UUID.randomUUID().toString()));
+    }
+
+    @Benchmark
+    public Object approveOrder(ApproveOrder approveOrder) {
+        return configuration.commandGateway().sendAndWait(new ApproveOrderCommand(approveOrder.orderId));
+    }
+
+    @Benchmark
+    public String replay() {
+        return DefaultUnitOfWork.startAndGet(null)
+                .executeWithResult(() -> repository.load(replayOrderId).identifierAsString())
+                .getPayload();
+    }
+
+    // OrderCreatedEvent y eventCount - 1 OrderApprovedEvent, como los dejarían los COMMANDS
+    private void appendHistory(String orderId) {
+
+        List<DomainEventMessage<?>> events = new ArrayList<>(eventCount);
+        events.add(new GenericDomainEventMessage<>(AGGREGATE_TYPE, orderId, 0,
+                OrderMapper.toOrderCreatedEvent(createOrderCommand(orderId))));
+        for (int i = 1; i < eventCount; i++) {
+            events.add(new GenericDomainEventMessage<>(AGGREGATE_TYPE, orderId, i, OrderApprovedEvent.builder()
+                    .orderId(orderId)
+                    .orderStatus(OrderStatus.APPROVED)
+                    .build()));
+        }
+
+        configuration.eventStore().publish(events);
+    }
+
+    private static CreateOrderCommand createOrderCommand(String orderId) {
+        return CreateOrderCommand.builder()
+                .orderId(orderId)
+                .userId("27b95829-4f3f-4ddf-8983-151ba010e35b")
+                .productId("product-1")
+                .quantity(2)
+                .addressId("address-1")
+                .orderStatus(OrderStatus.CREATED)
+                .build();
+    }
+}
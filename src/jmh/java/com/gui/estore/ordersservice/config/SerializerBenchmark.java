@@ -0,0 +1,77 @@
+package com.gui.estore.ordersservice.config;
+
+import com.gui.estore.ordersservice.core.events.OrderCreatedEvent;
+import com.gui.estore.ordersservice.model.OrderStatus;
+import com.gui.estore.ordersservice.saga.OrderSaga;
+import com.thoughtworks.xstream.XStream;
+import org.axonframework.serialization.SerializedObject;
+import org.axonframework.serialization.Serializer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// serialización de eventos y de OrderSaga con los mismos serializers que monta SerializerConfig
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializerBenchmark {
+
+    @Param({"xstream", "json", "cbor"})
+    String format;
+
+    private Serializer serializer;
+    private OrderCreatedEvent orderCreatedEvent;
+    private OrderSaga orderSaga;
+    private SerializedObject<byte[]> serializedEvent;
+    private SerializedObject<byte[]> serializedSaga;
+
+    @Setup
+    public void setUp() {
+
+        serializer = "xstream".equals(format)
+                ? SerializerConfig.xStreamSerializer(new AxonConfig().xStream())
+                : SerializerConfig.jacksonSerializer(format);
+
+        String orderId = UUID.randomUUID().toString();
+        orderCreatedEvent = new OrderCreatedEvent(orderId, "product-1", "27b95829-4f3f-4ddf-8983-151ba010e35b",
+                2, "address-1", OrderStatus.CREATED);
+
+        // estado de SAGA tras ProductReservedEvent y PaymentProcessedEvent
+        orderSaga = new OrderSaga();
+        ReflectionTestUtils.setField(orderSaga, "paymentScheduleId", UUID.randomUUID().toString());
+        ReflectionTestUtils.setField(orderSaga, "shipmentScheduleId", UUID.randomUUID().toString());
+        ReflectionTestUtils.setField(orderSaga, "productId", "product-1");
+        ReflectionTestUtils.setField(orderSaga, "productQuantity", 2);
+        ReflectionTestUtils.setField(orderSaga, "userId", "27b95829-4f3f-4ddf-8983-151ba010e35b");
+        ReflectionTestUtils.setField(orderSaga, "orderCreatedAtMillis", System.currentTimeMillis());
+        ReflectionTestUtils.setField(orderSaga, "traceId", UUID.randomUUID().toString());
+
+        serializedEvent = serializer.serialize(orderCreatedEvent, byte[].class);
+        serializedSaga = serializer.serialize(orderSaga, byte[].class);
+    }
+
+    @Benchmark
+    public SerializedObject<byte[]> serializeEvent() {
+        return serializer.serialize(orderCreatedEvent, byte[].class);
+    }
+
+    @Benchmark
+    public Object deserializeEvent() {
+        return serializer.deserialize(serializedEvent);
+    }
+
+    @Benchmark
+    public SerializedObject<byte[]> serializeSaga() {
+        return serializer.serialize(orderSaga, byte[].class);
+    }
+
+    @Benchmark
+    public Object deserializeSaga() {
+        return serializer.deserialize(serializedSaga);
+    }
+}
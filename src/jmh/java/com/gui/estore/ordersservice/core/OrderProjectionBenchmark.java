@@ -0,0 +1,133 @@
+package com.gui.estore.ordersservice.core;
+
+import com.gui.estore.ordersservice.core.events.OrderApprovedEvent;
+import com.gui.estore.ordersservice.core.events.OrderCreatedEvent;
+import com.gui.estore.ordersservice.mappers.OrderMapper;
+import com.gui.estore.ordersservice.model.OrderEntity;
+import com.gui.estore.ordersservice.model.OrderStatus;
+import com.gui.estore.ordersservice.repositories.OrderRepository;
+import org.axonframework.eventhandling.GenericEventMessage;
+import org.axonframework.messaging.unitofwork.DefaultUnitOfWork;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// eventos/s de la proyección order-group sobre H2 en memoria, con la configuración JPA de application.properties
+// (hibernate.jdbc.batch_size...): un lote de 50 eventos (batch-size del procesador) en una transacción, la mitad
+// creaciones y la otra mitad aprobaciones de esas mismas órdenes
+//  - perEventSave: como OrderEventsHandler antes de agrupar, un save por evento y una lectura por cambio de estado
+//  - batchedFlush: OrderEventsHandler, inserts en batch JDBC y un UPDATE ... IN por estado al hacer commit
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderProjectionBenchmark {
+
+    private static final int BATCH = 50;
+    private static final String USER_ID = "27b95829-4f3f-4ddf-8983-151ba010e35b";
+
+    private ConfigurableApplicationContext context;
+    private OrderRepository orderRepository;
+    private TransactionTemplate transactionTemplate;
+    private OrderEventsHandler orderEventsHandler;
+
+    // solo la parte JPA del servicio, sin Axon, web ni config server
+    @Configuration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class})
+    @EntityScan(basePackageClasses = OrderEntity.class)
+    @EnableJpaRepositories(basePackageClasses = OrderRepository.class)
+    static class ProjectionConfig {
+    }
+
+    @Setup
+    public void setUp() {
+
+        context = new SpringApplicationBuilder(ProjectionConfig.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:orders-benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.cloud.config.enabled=false");
+
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+
+        orderRepository = context.getBean(OrderRepository.class);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        orderEventsHandler = new OrderEventsHandler(orderRepository,
+                SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class)),
+                transactionManager);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    // la tabla vuelve a empezar vacía en cada iteración
+    @TearDown(Level.Iteration)
+    public void clear() {
+        orderRepository.deleteAllInBatch();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void perEventSave() {
+
+        List<String> orderIds = orderIds();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            orderIds.forEach(orderId -> orderRepository.save(OrderMapper.toOrderEntity(orderCreatedEvent(orderId), Instant.now())));
+            orderIds.forEach(orderId -> {
+                OrderEntity orderEntity = orderRepository.findByOrderId(orderId)
+                        .orElseThrow(() -> new RuntimeException("No hay orden que aprobar en BD"));
+                orderEntity.setOrderStatus(OrderStatus.APPROVED);
+                orderRepository.save(orderEntity);
+            });
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void batchedFlush() {
+
+        List<String> orderIds = orderIds();
+
+        transactionTemplate.executeWithoutResult(status ->
+                DefaultUnitOfWork.startAndGet(GenericEventMessage.asEventMessage("batch")).execute(() -> {
+                    orderIds.forEach(orderId ->
+                            orderEventsHandler.on(orderCreatedEvent(orderId), Instant.now(), UUID.randomUUID().toString()));
+                    orderIds.forEach(orderId ->
+                            orderEventsHandler.on(new OrderApprovedEvent(orderId, OrderStatus.APPROVED), UUID.randomUUID().toString()));
+                }));
+    }
+
+    private static List<String> orderIds() {
+        List<String> orderIds = new ArrayList<>(BATCH / 2);
+        for (int i = 0; i < BATCH / 2; i++) orderIds.add(UUID.randomUUID().toString());
+        return orderIds;
+    }
+
+    private static OrderCreatedEvent orderCreatedEvent(String orderId) {
+        return new OrderCreatedEvent(orderId, "product-1", USER_ID, 1, "address-1", OrderStatus.CREATED);
+    }
+}
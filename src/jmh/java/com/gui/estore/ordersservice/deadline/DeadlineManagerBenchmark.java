@@ -0,0 +1,72 @@
+package com.gui.estore.ordersservice.deadline;
+
+import org.axonframework.common.transaction.NoTransactionManager;
+import org.axonframework.deadline.DeadlineManager;
+import org.axonframework.deadline.SimpleDeadlineManager;
+import org.axonframework.modelling.saga.SagaScopeDescriptor;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// programar y cancelar un Deadline, lo que hace SAGA en cada orden que termina bien, con pending Deadlines ya
+// programados: con el heap de SimpleDeadlineManager cada alta cuesta O(log n), con la rueda de tiempo O(1)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DeadlineManagerBenchmark {
+
+    @Param({"simple", "timing-wheel"})
+    String manager;
+
+    @Param({"0", "100000", "1000000"})
+    int pending;
+
+    private DeadlineManager deadlineManager;
+    private Runnable shutdown;
+    private SagaScopeDescriptor sagaScope;
+
+    @Setup
+    public void setUp() {
+
+        if ("simple".equals(manager)) {
+            SimpleDeadlineManager simpleDeadlineManager = SimpleDeadlineManager.builder()
+                    .scopeAwareProvider(scope -> Stream.empty())
+                    .transactionManager(NoTransactionManager.INSTANCE)
+                    .build();
+            deadlineManager = simpleDeadlineManager;
+            shutdown = simpleDeadlineManager::shutdown;
+        } else {
+            TimingWheelDeadlineManager timingWheelDeadlineManager = TimingWheelDeadlineManager.builder()
+                    .scopeAwareProvider(scope -> Stream.empty())
+                    .transactionManager(NoTransactionManager.INSTANCE)
+                    .build();
+            deadlineManager = timingWheelDeadlineManager;
+            shutdown = timingWheelDeadlineManager::shutdown;
+        }
+
+        sagaScope = new SagaScopeDescriptor("OrderSaga", UUID.randomUUID().toString());
+
+        // una vez por trial: vencen a una hora vista y no se disparan durante la medida
+        for (int i = 0; i < pending; i++) {
+            deadlineManager.schedule(Duration.ofHours(1), "shipment-processing-deadline", null, sagaScope);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        shutdown.run();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void scheduleAndCancel() {
+        String scheduleId = deadlineManager.schedule(Duration.ofMinutes(2), "payment-processing-deadline", null, sagaScope);
+        deadlineManager.cancelSchedule("payment-processing-deadline", scheduleId);
+    }
+}
@@ -0,0 +1,90 @@
+package com.gui.estore.ordersservice.queries;
+
+import com.gui.estore.ordersservice.model.OrderEntity;
+import com.gui.estore.ordersservice.model.OrderStatus;
+import com.gui.estore.ordersservice.queries.rest.OrderRestModel;
+import com.gui.estore.ordersservice.repositories.OrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// camino de findOrders en OrderQueryHandler (validación de orden, paginación y mapeo) con una página ya leída
+// el repositorio es un stub: el coste de la consulta en BD depende de la BD y los índices, no de este servicio
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FindOrdersBenchmark {
+
+    @Param({"20", "500"})
+    int pageSize;
+
+    private OrderQueryHandler orderQueryHandler;
+    private FindOrdersQuery pageQuery;
+    private FindOrdersQuery keysetQuery;
+
+    @Setup
+    public void setUp() {
+
+        List<OrderEntity> page = IntStream.range(0, pageSize)
+                .mapToObj(i -> new OrderEntity(UUID.randomUUID().toString(), "27b95829-4f3f-4ddf-8983-151ba010e35b",
+                        "product-" + i, 1 + i % 5, "address-1", OrderStatus.APPROVED, Instant.now()))
+                .collect(Collectors.toList());
+
+        OrderRepository orderRepository = (OrderRepository) Proxy.newProxyInstance(
+                OrderRepository.class.getClassLoader(),
+                new Class<?>[]{OrderRepository.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findOrders":
+                            return new SliceImpl<>(page);
+                        case "findOrdersAfter":
+                            return page;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+
+        // findOrders no usa la proyección de contadores por usuario
+        orderQueryHandler = new OrderQueryHandler(orderRepository,
+                new OrderSummaryCache(10_000, Duration.ofMinutes(1), new SimpleMeterRegistry()), null);
+
+        pageQuery = FindOrdersQuery.builder()
+                .userId("27b95829-4f3f-4ddf-8983-151ba010e35b")
+                .orderStatus(OrderStatus.APPROVED)
+                .page(3)
+                .size(pageSize)
+                .sortBy("orderId")
+                .direction(Sort.Direction.DESC)
+                .build();
+
+        keysetQuery = FindOrdersQuery.builder()
+                .userId("27b95829-4f3f-4ddf-8983-151ba010e35b")
+                .orderStatus(OrderStatus.APPROVED)
+                .size(pageSize)
+                .afterOrderId(UUID.randomUUID().toString())
+                .build();
+    }
+
+    @Benchmark
+    public List<OrderRestModel> findOrdersPage() {
+        return orderQueryHandler.findOrders(pageQuery);
+    }
+
+    @Benchmark
+    public List<OrderRestModel> findOrdersKeyset() {
+        return orderQueryHandler.findOrders(keysetQuery);
+    }
+}
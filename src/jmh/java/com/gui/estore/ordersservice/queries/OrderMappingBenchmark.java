@@ -0,0 +1,90 @@
+package com.gui.estore.ordersservice.queries;
+
+import com.gui.estore.ordersservice.commands.CreateOrderCommand;
+import com.gui.estore.ordersservice.core.events.OrderCreatedEvent;
+import com.gui.estore.ordersservice.mappers.OrderMapper;
+import com.gui.estore.ordersservice.model.OrderEntity;
+import com.gui.estore.ordersservice.model.OrderStatus;
+import com.gui.estore.ordersservice.queries.rest.OrderRestModel;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.BeanUtils;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// BeanUtils.copyProperties (mapeo anterior) frente a OrderMapper en los tres puntos de mapeo:
+// COMMAND -> EVENT (OrderAggregate), EVENT -> entidad (OrderEventsHandler) y entidad -> modelo REST (OrderQueryHandler)
+// con -prof gc (jmh.args por defecto) se ve también la memoria reservada por llamada (gc.alloc.rate.norm)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderMappingBenchmark {
+
+    private CreateOrderCommand createOrderCommand;
+    private OrderCreatedEvent orderCreatedEvent;
+    private OrderEntity orderEntity;
+    private Instant createdAt;
+
+    @Setup
+    public void setUp() {
+
+        String orderId = UUID.randomUUID().toString();
+        createdAt = Instant.now();
+
+        createOrderCommand = CreateOrderCommand.builder()
+                .orderId(orderId)
+                .userId("27b95829-4f3f-4ddf-8983-151ba010e35b")
+                .productId("product-1")
+                .quantity(2)
+                .addressId("address-1")
+                .orderStatus(OrderStatus.CREATED)
+                .build();
+
+        orderCreatedEvent = new OrderCreatedEvent(orderId, "product-1", "27b95829-4f3f-4ddf-8983-151ba010e35b",
+                2, "address-1", OrderStatus.CREATED);
+
+        orderEntity = new OrderEntity(orderId, "27b95829-4f3f-4ddf-8983-151ba010e35b", "product-1",
+                2, "address-1", OrderStatus.APPROVED, createdAt);
+    }
+
+    @Benchmark
+    public OrderCreatedEvent commandToEventBeanUtils() {
+        OrderCreatedEvent event = new OrderCreatedEvent();
+        BeanUtils.copyProperties(createOrderCommand, event);
+        return event;
+    }
+
+    @Benchmark
+    public OrderCreatedEvent commandToEventMapper() {
+        return OrderMapper.toOrderCreatedEvent(createOrderCommand);
+    }
+
+    @Benchmark
+    public OrderEntity eventToEntityBeanUtils() {
+        OrderEntity entity = new OrderEntity();
+        BeanUtils.copyProperties(orderCreatedEvent, entity);
+        entity.setCreatedAt(createdAt);
+        return entity;
+    }
+
+    @Benchmark
+    public OrderEntity eventToEntityMapper() {
+        return OrderMapper.toOrderEntity(orderCreatedEvent, createdAt);
+    }
+
+    @Benchmark
+    public OrderRestModel entityToRestModelBeanUtils() {
+        OrderRestModel orderRestModel = new OrderRestModel();
+        BeanUtils.copyProperties(orderEntity, orderRestModel);
+        return orderRestModel;
+    }
+
+    @Benchmark
+    public OrderRestModel entityToRestModelMapper() {
+        return OrderMapper.toOrderRestModel(orderEntity);
+    }
+}
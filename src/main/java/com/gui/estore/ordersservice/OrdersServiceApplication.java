@@ -1,14 +1,8 @@
 package com.gui.estore.ordersservice;
 
-import org.axonframework.config.Configuration;
-import org.axonframework.config.ConfigurationScopeAwareProvider;
-import org.axonframework.deadline.DeadlineManager;
-import org.axonframework.deadline.SimpleDeadlineManager;
-import org.axonframework.spring.messaging.unitofwork.SpringTransactionManager;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
-import org.springframework.context.annotation.Bean;
 
 @EnableDiscoveryClient
 @SpringBootApplication
@@ -18,14 +12,4 @@ public class OrdersServiceApplication {
         SpringApplication.run(OrdersServiceApplication.class, args);
     }
 
-    @Bean
-    public DeadlineManager deadlineManager(Configuration configuration,
-                                           SpringTransactionManager transactionManager) {
-
-        return SimpleDeadlineManager.builder()
-                .scopeAwareProvider(new ConfigurationScopeAwareProvider(configuration))
-                .transactionManager(transactionManager)
-                .build();
-    }
-
 }
@@ -0,0 +1,31 @@
+package com.gui.estore.ordersservice.admission;
+
+import com.gui.estore.ordersservice.core.events.OrderApprovedEvent;
+import com.gui.estore.ordersservice.core.events.OrderRejectedEvent;
+import org.axonframework.config.ProcessingGroup;
+import org.axonframework.eventhandling.EventHandler;
+import org.springframework.stereotype.Component;
+
+// libera la orden en OrderAdmissionLimiter al terminar
+// procesador tracking con el token en memoria (AxonConfig): cada instancia lee todos los eventos, también los de
+// órdenes que ha admitido ella y ha terminado otra; las que no admitió no están en su OrderAdmissionLimiter
+@Component
+@ProcessingGroup("order-admission")
+public class OrderAdmissionEventsHandler {
+
+    private final OrderAdmissionLimiter orderAdmissionLimiter;
+
+    public OrderAdmissionEventsHandler(OrderAdmissionLimiter orderAdmissionLimiter) {
+        this.orderAdmissionLimiter = orderAdmissionLimiter;
+    }
+
+    @EventHandler
+    public void on(OrderApprovedEvent orderApprovedEvent) {
+        orderAdmissionLimiter.release(orderApprovedEvent.getOrderId());
+    }
+
+    @EventHandler
+    public void on(OrderRejectedEvent orderRejectedEvent) {
+        orderAdmissionLimiter.release(orderRejectedEvent.getOrderId());
+    }
+}
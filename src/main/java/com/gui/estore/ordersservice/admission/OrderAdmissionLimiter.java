@@ -0,0 +1,129 @@
+package com.gui.estore.ordersservice.admission;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.gui.estore.ordersservice.exceptions.TooManyOrdersException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// control de admisión de órdenes: como mucho limit órdenes en curso (creadas y sin aprobar ni rechazar) por instancia
+// orders.admission.mode:
+//  - fixed: limit fijo
+//  - adaptive: AIMD sobre la latencia de las órdenes, +1/limit por cada orden que termina por debajo de latency-target
+//    y limit * backoff-ratio por cada una que lo supera
+// OrderAdmissionEventsHandler libera las órdenes al ver su final, lo haya publicado la instancia que sea;
+// in-flight-ttl solo cubre un final que no llega (evento descartado, procesador parado) y no cuenta como congestión
+// no hay cola: lo que no entra se rechaza con 429, así que lo que espera son las órdenes en curso (orders.admission.in.flight)
+@Component
+public class OrderAdmissionLimiter {
+
+    private final boolean enabled;
+    private final boolean adaptive;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyTargetNanos;
+    private final double backoffRatio;
+    private final Duration retryAfter;
+
+    // orderId -> System.nanoTime() al admitirla
+    private final Cache<String, Long> inFlight;
+    private final AtomicInteger inFlightCount = new AtomicInteger();
+    private final Counter rejectedOrders;
+
+    private volatile double limit;
+
+    public OrderAdmissionLimiter(MeterRegistry meterRegistry,
+                                 @Value("${orders.admission.enabled:true}") boolean enabled,
+                                 @Value("${orders.admission.mode:fixed}") String mode,
+                                 @Value("${orders.admission.limit:200}") int limit,
+                                 @Value("${orders.admission.min-limit:10}") int minLimit,
+                                 @Value("${orders.admission.max-limit:1000}") int maxLimit,
+                                 @Value("${orders.admission.latency-target:5s}") Duration latencyTarget,
+                                 @Value("${orders.admission.backoff-ratio:0.9}") double backoffRatio,
+                                 @Value("${orders.admission.in-flight-ttl:5m}") Duration inFlightTtl,
+                                 @Value("${orders.admission.retry-after:2s}") Duration retryAfter) {
+
+        this.enabled = enabled;
+        this.adaptive = "adaptive".equals(mode);
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTargetNanos = latencyTarget.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.retryAfter = retryAfter;
+        this.limit = limit;
+
+        // toda salida de la caché (liberada o caducada) descuenta una orden en curso
+        // caducar no ajusta el límite: sin el final no se sabe cuánto tardó la orden
+        this.inFlight = CacheBuilder.newBuilder()
+                .expireAfterWrite(inFlightTtl)
+                .removalListener((RemovalListener<String, Long>) removal -> inFlightCount.decrementAndGet())
+                .build();
+
+        Gauge.builder("orders.admission.limit", this, OrderAdmissionLimiter::currentLimit)
+                .description("Órdenes en curso admitidas como mucho por esta instancia")
+                .register(meterRegistry);
+        Gauge.builder("orders.admission.in.flight", inFlightCount, AtomicInteger::get)
+                .description("Órdenes admitidas sin aprobar ni rechazar (SAGAS abiertas); no hay cola, lo que no entra es 429")
+                .register(meterRegistry);
+        this.rejectedOrders = Counter.builder("orders.admission.rejected")
+                .description("Órdenes rechazadas con 429 por estar en el límite")
+                .register(meterRegistry);
+    }
+
+    // admite todas las órdenes o ninguna (batch)
+    // un batch mayor que el límite solo entra con la instancia sin órdenes en curso, si no no entraría nunca
+    public synchronized void acquire(Collection<String> orderIds) {
+
+        if (!enabled) return;
+
+        if (isOverLimit(orderIds.size())) {
+            // las caducadas solo se limpian al acceder a la caché
+            inFlight.cleanUp();
+
+            if (isOverLimit(orderIds.size())) {
+                rejectedOrders.increment(orderIds.size());
+                throw new TooManyOrdersException("Hay demasiadas órdenes en curso, inténtelo de nuevo más tarde", retryAfter);
+            }
+        }
+
+        long now = System.nanoTime();
+        orderIds.forEach(orderId -> {
+            inFlightCount.incrementAndGet();
+            inFlight.put(orderId, now);
+        });
+    }
+
+    // la orden ha terminado (aprobada o rechazada) o su COMMAND ha fallado
+    // no hace nada si la orden no se admitió en esta instancia o ya se había liberado
+    public void release(String orderId) {
+
+        Long admittedAt = inFlight.asMap().remove(orderId);
+
+        if (admittedAt != null) adjust(System.nanoTime() - admittedAt > latencyTargetNanos);
+    }
+
+    public int currentLimit() {
+        return (int) limit;
+    }
+
+    private boolean isOverLimit(int orders) {
+        return inFlightCount.get() > 0 && inFlightCount.get() + orders > currentLimit();
+    }
+
+    private synchronized void adjust(boolean overloaded) {
+
+        if (!adaptive) return;
+
+        limit = overloaded
+                ? Math.max(minLimit, limit * backoffRatio)
+                : Math.min(maxLimit, limit + 1.0 / limit);
+    }
+}
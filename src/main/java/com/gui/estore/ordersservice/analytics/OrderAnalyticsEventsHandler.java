@@ -0,0 +1,44 @@
+package com.gui.estore.ordersservice.analytics;
+
+import com.gui.estore.ordersservice.core.events.OrderApprovedEvent;
+import com.gui.estore.ordersservice.core.events.OrderCreatedEvent;
+import com.gui.estore.ordersservice.core.events.OrderRejectedEvent;
+import org.axonframework.config.ProcessingGroup;
+import org.axonframework.eventhandling.EventHandler;
+import org.axonframework.eventhandling.ResetHandler;
+import org.axonframework.eventhandling.Timestamp;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+// rollups por tiempo en memoria (OrderRollupStore), cada instancia procesa todos los eventos (AnalyticsConfig)
+@Component
+@ProcessingGroup("order-analytics-group")
+public class OrderAnalyticsEventsHandler {
+
+    private final OrderRollupStore orderRollupStore;
+
+    public OrderAnalyticsEventsHandler(OrderRollupStore orderRollupStore) {
+        this.orderRollupStore = orderRollupStore;
+    }
+
+    @EventHandler
+    public void on(OrderCreatedEvent orderCreatedEvent, @Timestamp Instant timestamp) {
+        orderRollupStore.created(timestamp);
+    }
+
+    @EventHandler
+    public void on(OrderApprovedEvent orderApprovedEvent, @Timestamp Instant timestamp) {
+        orderRollupStore.approved(timestamp);
+    }
+
+    @EventHandler
+    public void on(OrderRejectedEvent orderRejectedEvent, @Timestamp Instant timestamp) {
+        orderRollupStore.rejected(timestamp, orderRejectedEvent.getReason());
+    }
+
+    @ResetHandler
+    public void reset() {
+        orderRollupStore.clear();
+    }
+}
@@ -0,0 +1,60 @@
+package com.gui.estore.ordersservice.analytics;
+
+import com.gui.estore.ordersservice.model.OrderRollups;
+import com.gui.estore.ordersservice.model.RollupProgress;
+import com.gui.estore.ordersservice.queries.FindOrderRollupsQuery;
+import org.axonframework.config.EventProcessingConfiguration;
+import org.axonframework.eventhandling.EventTrackerStatus;
+import org.axonframework.eventhandling.TrackingEventProcessor;
+import org.axonframework.queryhandling.QueryHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.OptionalLong;
+
+// cualquier instancia puede contestar: todas leen los mismos eventos, pero una recién arrancada aún los está leyendo
+// y lo indica en progress (caughtUp a false)
+@Component
+public class OrderAnalyticsQueryHandler {
+
+    private final OrderRollupStore orderRollupStore;
+    private final EventProcessingConfiguration eventProcessingConfiguration;
+
+    public OrderAnalyticsQueryHandler(OrderRollupStore orderRollupStore,
+                                      EventProcessingConfiguration eventProcessingConfiguration) {
+        this.orderRollupStore = orderRollupStore;
+        this.eventProcessingConfiguration = eventProcessingConfiguration;
+    }
+
+    @QueryHandler
+    public OrderRollups findOrderRollups(FindOrderRollupsQuery findOrderRollupsQuery) {
+
+        findOrderRollupsQuery.validate();
+
+        return orderRollupStore.rollups(findOrderRollupsQuery.getGranularity(),
+                findOrderRollupsQuery.getFrom(),
+                findOrderRollupsQuery.getTo(),
+                findOrderRollupsQuery.getTopReasons(),
+                progress());
+    }
+
+    // estado del segmento de order-analytics-group (un hilo, AnalyticsConfig); sin segmento reclamado no está al día
+    private RollupProgress progress() {
+
+        return eventProcessingConfiguration.eventProcessor("order-analytics-group", TrackingEventProcessor.class)
+                .map(processor -> {
+                    Collection<EventTrackerStatus> statuses = processor.processingStatus().values();
+
+                    return new RollupProgress(
+                            !statuses.isEmpty() && statuses.stream().allMatch(EventTrackerStatus::isCaughtUp),
+                            statuses.stream().anyMatch(EventTrackerStatus::isReplaying),
+                            statuses.stream()
+                                    .map(EventTrackerStatus::getCurrentPosition)
+                                    .filter(OptionalLong::isPresent)
+                                    .map(OptionalLong::getAsLong)
+                                    .max(Long::compare)
+                                    .orElse(null));
+                })
+                .orElse(new RollupProgress(false, false, null));
+    }
+}
@@ -0,0 +1,146 @@
+package com.gui.estore.ordersservice.analytics;
+
+import com.gui.estore.ordersservice.model.OrderRollupBucket;
+import com.gui.estore.ordersservice.model.OrderRollups;
+import com.gui.estore.ordersservice.model.RejectionReasonCount;
+import com.gui.estore.ordersservice.model.RollupGranularity;
+import com.gui.estore.ordersservice.model.RollupProgress;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+// contadores de órdenes en memoria por bucket de minuto, hora y día, cada granularidad con su retención
+// los buckets más antiguos que la retención se descartan al escribir, el tamaño es fijo por granularidad
+// (24h de minutos = 1440 buckets)
+@Component
+public class OrderRollupStore {
+
+    // motivos de rechazo distintos por bucket, el resto se cuenta como OTHER_REASONS
+    private static final int MAX_REASONS_PER_BUCKET = 50;
+    private static final String OTHER_REASONS = "other";
+    private static final String UNKNOWN_REASON = "unknown";
+
+    private final Map<RollupGranularity, ConcurrentSkipListMap<Instant, Bucket>> buckets = new EnumMap<>(RollupGranularity.class);
+    private final Map<RollupGranularity, Duration> retention = new EnumMap<>(RollupGranularity.class);
+
+    public OrderRollupStore(@Value("${orders.analytics.retention.minute:24h}") Duration minuteRetention,
+                            @Value("${orders.analytics.retention.hour:7d}") Duration hourRetention,
+                            @Value("${orders.analytics.retention.day:90d}") Duration dayRetention) {
+
+        retention.put(RollupGranularity.MINUTE, minuteRetention);
+        retention.put(RollupGranularity.HOUR, hourRetention);
+        retention.put(RollupGranularity.DAY, dayRetention);
+
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            buckets.put(granularity, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    public void created(Instant timestamp) {
+        update(timestamp, bucket -> bucket.created.increment());
+    }
+
+    public void approved(Instant timestamp) {
+        update(timestamp, bucket -> bucket.approved.increment());
+    }
+
+    public void rejected(Instant timestamp, String reason) {
+        update(timestamp, bucket -> {
+            bucket.rejected.increment();
+            bucket.reason(reason);
+        });
+    }
+
+    // la mayor retención: desde ahí se empiezan a leer eventos al arrancar (AnalyticsConfig)
+    public Duration maxRetention() {
+        return Collections.max(retention.values());
+    }
+
+    public void clear() {
+        buckets.values().forEach(Map::clear);
+    }
+
+    // solo recorre los buckets de [from, to), nunca eventos ni filas de orders
+    public OrderRollups rollups(RollupGranularity granularity, Instant from, Instant to, int topReasons,
+                                RollupProgress progress) {
+
+        NavigableMap<Instant, Bucket> range = buckets.get(granularity)
+                .subMap(granularity.bucketStart(from), true, to, false);
+
+        List<OrderRollupBucket> rollupBuckets = new ArrayList<>(range.size());
+        Map<String, Long> reasons = new HashMap<>();
+        long created = 0;
+        long approved = 0;
+        long rejected = 0;
+
+        for (Map.Entry<Instant, Bucket> entry : range.entrySet()) {
+
+            Bucket bucket = entry.getValue();
+            long bucketCreated = bucket.created.sum();
+            long bucketApproved = bucket.approved.sum();
+            long bucketRejected = bucket.rejected.sum();
+
+            rollupBuckets.add(new OrderRollupBucket(entry.getKey(), bucketCreated, bucketApproved, bucketRejected,
+                    approvalRate(bucketApproved, bucketRejected)));
+            bucket.reasons.forEach((reason, count) -> reasons.merge(reason, count.sum(), Long::sum));
+
+            created += bucketCreated;
+            approved += bucketApproved;
+            rejected += bucketRejected;
+        }
+
+        List<RejectionReasonCount> topRejectionReasons = reasons.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(topReasons)
+                .map(reason -> new RejectionReasonCount(reason.getKey(), reason.getValue()))
+                .collect(Collectors.toList());
+
+        return new OrderRollups(granularity, from, to, created, approved, rejected, approvalRate(approved, rejected),
+                rollupBuckets, topRejectionReasons, progress);
+    }
+
+    // el EVENT se cuenta en el bucket de su timestamp en cada granularidad que aún lo retiene
+    private void update(Instant timestamp, Consumer<Bucket> change) {
+
+        Instant now = Instant.now();
+
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+
+            Instant cutoff = granularity.bucketStart(now.minus(retention.get(granularity)));
+            if (timestamp.isBefore(cutoff)) continue;
+
+            ConcurrentSkipListMap<Instant, Bucket> granularityBuckets = buckets.get(granularity);
+            change.accept(granularityBuckets.computeIfAbsent(granularity.bucketStart(timestamp), start -> new Bucket()));
+            granularityBuckets.headMap(cutoff).clear();
+        }
+    }
+
+    private static double approvalRate(long approved, long rejected) {
+        return approved + rejected == 0 ? 0 : (double) approved / (approved + rejected);
+    }
+
+    private static final class Bucket {
+
+        private final LongAdder created = new LongAdder();
+        private final LongAdder approved = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final Map<String, LongAdder> reasons = new ConcurrentHashMap<>();
+
+        private void reason(String reason) {
+
+            String key = reason == null || reason.isEmpty() ? UNKNOWN_REASON : reason;
+
+            if (!reasons.containsKey(key) && reasons.size() >= MAX_REASONS_PER_BUCKET) key = OTHER_REASONS;
+
+            reasons.computeIfAbsent(key, k -> new LongAdder()).increment();
+        }
+    }
+}
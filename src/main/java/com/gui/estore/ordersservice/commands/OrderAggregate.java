@@ -3,15 +3,16 @@ package com.gui.estore.ordersservice.commands;
 import com.gui.estore.ordersservice.core.events.OrderApprovedEvent;
 import com.gui.estore.ordersservice.core.events.OrderCreatedEvent;
 import com.gui.estore.ordersservice.core.events.OrderRejectedEvent;
+import com.gui.estore.ordersservice.mappers.OrderMapper;
 import com.gui.estore.ordersservice.model.OrderStatus;
 import org.axonframework.commandhandling.CommandHandler;
 import org.axonframework.eventsourcing.EventSourcingHandler;
 import org.axonframework.modelling.command.AggregateIdentifier;
 import org.axonframework.modelling.command.AggregateLifecycle;
 import org.axonframework.spring.stereotype.Aggregate;
-import org.springframework.beans.BeanUtils;
 
-@Aggregate
+// repositorio propio (OrderAggregateConfig) con snapshots y métrica del tiempo de carga
+@Aggregate(repository = "orderAggregateRepository")
 public class OrderAggregate {
 
     @AggregateIdentifier
@@ -32,9 +33,7 @@ public class OrderAggregate {
 
 
         // creamos evento si pasan validaciones
-        OrderCreatedEvent orderCreatedEvent = new OrderCreatedEvent();
-
-        BeanUtils.copyProperties(createOrderCommand, orderCreatedEvent);
+        OrderCreatedEvent orderCreatedEvent = OrderMapper.toOrderCreatedEvent(createOrderCommand);
 
         // publicamos evento y mandamos al eventHandler
         AggregateLifecycle.apply(orderCreatedEvent);
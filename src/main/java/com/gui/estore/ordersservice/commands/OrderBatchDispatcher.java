@@ -0,0 +1,106 @@
+package com.gui.estore.ordersservice.commands;
+
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// envía los CreateOrderCommand de un batch con como mucho maxInFlight COMMAND pendientes a la vez
+// cada respuesta lanza el siguiente COMMAND (pipelining): no se bloquea ningún hilo ni se envían todos de golpe
+@Slf4j
+@Component
+public class OrderBatchDispatcher {
+
+    private final CommandGateway commandGateway;
+    private final int maxInFlight;
+
+    public OrderBatchDispatcher(CommandGateway commandGateway,
+                                @Value("${orders.batch.max-in-flight:32}") int maxInFlight) {
+        this.commandGateway = commandGateway;
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    // beforeSend se ejecuta justo antes de enviar cada COMMAND (p.ej. abrir la SUBSCRIPTION QUERY de la orden)
+    // afterSend recibe el resultado de cada COMMAND: throwable a null si el AGGREGATE lo ha aceptado
+    // el CompletableFuture devuelto se completa cuando han respondido todos los COMMAND
+    public CompletableFuture<Void> dispatch(List<CreateOrderCommand> commands,
+                                            Consumer<CreateOrderCommand> beforeSend,
+                                            BiConsumer<CreateOrderCommand, Throwable> afterSend) {
+
+        CompletableFuture<Void> completed = new CompletableFuture<>();
+
+        if (commands.isEmpty()) {
+            completed.complete(null);
+            return completed;
+        }
+
+        Batch batch = new Batch(commands, beforeSend, afterSend, completed);
+
+        for (int i = 0; i < Math.min(maxInFlight, commands.size()); i++) {
+            sendNext(batch);
+        }
+
+        return completed;
+    }
+
+    private void sendNext(Batch batch) {
+
+        int index = batch.next.getAndIncrement();
+        if (index >= batch.commands.size()) return;
+
+        CreateOrderCommand createOrderCommand = batch.commands.get(index);
+
+        CompletableFuture<Object> result;
+        try {
+            batch.beforeSend.accept(createOrderCommand);
+            result = commandGateway.send(createOrderCommand);
+        } catch (RuntimeException e) {
+            result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+        }
+
+        result.whenComplete((ignored, throwable) -> {
+            try {
+                batch.afterSend.accept(createOrderCommand, throwable == null ? null : rootCause(throwable));
+            } catch (RuntimeException e) {
+                log.error("Error al procesar el resultado de la orden {} del batch", createOrderCommand.getOrderId(), e);
+            }
+
+            if (batch.done.incrementAndGet() == batch.commands.size()) batch.completed.complete(null);
+            else sendNext(batch);
+        });
+    }
+
+    private static Throwable rootCause(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause()
+                : throwable;
+    }
+
+    private static final class Batch {
+
+        private final List<CreateOrderCommand> commands;
+        private final Consumer<CreateOrderCommand> beforeSend;
+        private final BiConsumer<CreateOrderCommand, Throwable> afterSend;
+        private final CompletableFuture<Void> completed;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger done = new AtomicInteger();
+
+        private Batch(List<CreateOrderCommand> commands,
+                      Consumer<CreateOrderCommand> beforeSend,
+                      BiConsumer<CreateOrderCommand, Throwable> afterSend,
+                      CompletableFuture<Void> completed) {
+            this.commands = commands;
+            this.beforeSend = beforeSend;
+            this.afterSend = afterSend;
+            this.completed = completed;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.gui.estore.ordersservice.commands.rest;
+
+import lombok.Data;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+public class OrderBatchCreateRest {
+
+    // se valida cada orden igual que en newOrder
+    @NotEmpty(message = "Orders cannot be empty")
+    @Size(max = 500, message = "A batch cannot have more than 500 orders")
+    @Valid
+    private List<OrderCreateRest> orders;
+}
@@ -0,0 +1,13 @@
+package com.gui.estore.ordersservice.commands.rest;
+
+import lombok.Value;
+
+import java.net.URI;
+
+// orderId asignado a cada orden del batch (mismo orden que la petición) y URL para consultar su estado
+@Value
+public class OrderBatchItem {
+
+    String orderId;
+    URI statusUri;
+}
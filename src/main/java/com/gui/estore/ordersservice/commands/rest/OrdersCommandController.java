@@ -1,60 +1,298 @@
 package com.gui.estore.ordersservice.commands.rest;
 
+import com.gui.estore.ordersservice.admission.OrderAdmissionLimiter;
 import com.gui.estore.ordersservice.commands.CreateOrderCommand;
+import com.gui.estore.ordersservice.commands.OrderBatchDispatcher;
 import com.gui.estore.ordersservice.model.OrderStatus;
 import com.gui.estore.ordersservice.model.OrderSummary;
 import com.gui.estore.ordersservice.queries.FindOrderQuery;
+import com.gui.estore.ordersservice.tracing.TraceMetaData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.commandhandling.GenericCommandMessage;
 import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.axonframework.messaging.MetaData;
 import org.axonframework.messaging.responsetypes.ResponseTypes;
 import org.axonframework.queryhandling.QueryGateway;
 import org.axonframework.queryhandling.SubscriptionQueryResult;
-import org.springframework.http.HttpStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
+@Slf4j
 @RestController
 @RequestMapping("orders")
 public class OrdersCommandController {
 
     private final CommandGateway commandGateway;
     private final QueryGateway queryGateway;
+    private final OrderBatchDispatcher orderBatchDispatcher;
+    private final OrderAdmissionLimiter orderAdmissionLimiter;
+    private final Duration responseTimeout;
+    private final Duration batchStreamTimeout;
 
-    public OrdersCommandController(CommandGateway commandGateway, QueryGateway queryGateway) {
+    // SUBSCRIPTION QUERY abiertas ahora mismo y total abiertas
+    private final AtomicInteger openSubscriptions = new AtomicInteger();
+    private final Counter openedSubscriptions;
+
+    public OrdersCommandController(CommandGateway commandGateway, QueryGateway queryGateway,
+                                   OrderBatchDispatcher orderBatchDispatcher,
+                                   OrderAdmissionLimiter orderAdmissionLimiter,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${orders.create.response-timeout:30s}") Duration responseTimeout,
+                                   @Value("${orders.batch.stream-timeout:5m}") Duration batchStreamTimeout) {
         this.commandGateway = commandGateway;
         this.queryGateway = queryGateway;
+        this.orderBatchDispatcher = orderBatchDispatcher;
+        this.orderAdmissionLimiter = orderAdmissionLimiter;
+        this.responseTimeout = responseTimeout;
+        this.batchStreamTimeout = batchStreamTimeout;
+
+        meterRegistry.gauge("orders.subscription.queries.open", openSubscriptions);
+        this.openedSubscriptions = meterRegistry.counter("orders.subscription.queries.opened");
     }
 
+    // DeferredResult libera el hilo de Tomcat mientras SAGA procesa la orden
+    // si no hay respuesta en responseTimeout devolvemos 202 Accepted con la URL para consultar el estado
+    // traceId: el de la cabecera X-Trace-Id o uno nuevo, viaja en el MetaData de todos los COMMAND/EVENT de la orden
+    // y se devuelve en la misma cabecera para consultar el timeline en /orders/trace/{traceId}
     @PostMapping("newOrder")
-    public OrderSummary createOrder(@Valid @RequestBody OrderCreateRest orderCreateRest) {
+    public DeferredResult<ResponseEntity<OrderSummary>> createOrder(@Valid @RequestBody OrderCreateRest orderCreateRest,
+                                                                    @RequestHeader(value = TraceMetaData.TRACE_ID_HEADER, required = false) String traceIdHeader) {
+
+        CreateOrderCommand createOrderCommand = createOrderCommand(orderCreateRest);
+        String orderId = createOrderCommand.getOrderId();
+        String traceId = StringUtils.hasText(traceIdHeader) ? traceIdHeader : UUID.randomUUID().toString();
+
+        // 429 si hay demasiadas órdenes en curso, antes de abrir la suscripción o enviar nada
+        orderAdmissionLimiter.acquire(List.of(orderId));
+
+        DeferredResult<ResponseEntity<OrderSummary>> deferredResult =
+                new DeferredResult<>(responseTimeout.toMillis(), accepted(orderId, traceId));
+
+        // si abrir la suscripción o enviar el COMMAND falla aquí mismo, el DeferredResult no llega a devolverse
+        // (no habrá onCompletion): se libera la plaza y se cierra la suscripción antes de relanzar
+        SubscriptionQueryResult<OrderSummary, OrderSummary> subscriptionQueryResult = null;
+        try {
+            subscriptionQueryResult = subscribe(orderId);
+            SubscriptionQueryResult<OrderSummary, OrderSummary> subscription = subscriptionQueryResult;
+
+            // se cierra la suscripción tanto con respuesta como con error o timeout
+            deferredResult.onCompletion(() -> close(subscription));
+
+            commandGateway.send(GenericCommandMessage.asCommandMessage(createOrderCommand)
+                            .andMetaData(MetaData.with(TraceMetaData.TRACE_ID, traceId)))
+                    // updates() se suscribe al FLUX (incremental update) y next() se queda con el primer cambio
+                    .thenCompose(result -> subscription.updates().next().toFuture())
+                    .whenComplete((orderSummary, throwable) -> {
+                        // si la respuesta llega tarde (202) la orden la libera OrderAdmissionEventsHandler o el TTL
+                        if (throwable != null || orderSummary != null) orderAdmissionLimiter.release(orderId);
+
+                        if (throwable != null) {
+                            deferredResult.setErrorResult(throwable instanceof CompletionException && throwable.getCause() != null
+                                    ? throwable.getCause()
+                                    : throwable);
+                        } else {
+                            deferredResult.setResult(ResponseEntity.ok()
+                                    .header(TraceMetaData.TRACE_ID_HEADER, traceId)
+                                    .body(orderSummary));
+                        }
+                    });
+        } catch (RuntimeException e) {
+            orderAdmissionLimiter.release(orderId);
+            if (subscriptionQueryResult != null) close(subscriptionQueryResult);
+            throw e;
+        }
+
+        return deferredResult;
+    }
+
+    // batch de órdenes: se devuelven los orderId al momento (202) y los COMMAND se envían en segundo plano
+    // con maxInFlight COMMAND pendientes como mucho (OrderBatchDispatcher)
+    @PostMapping("batch")
+    public ResponseEntity<List<OrderBatchItem>> createOrders(@Valid @RequestBody OrderBatchCreateRest orderBatchCreateRest) {
+
+        List<CreateOrderCommand> createOrderCommands = createOrderCommands(orderBatchCreateRest);
+        admit(createOrderCommands);
+
+        orderBatchDispatcher.dispatch(createOrderCommands, createOrderCommand -> { }, (createOrderCommand, throwable) -> {
+            if (throwable != null) {
+                orderAdmissionLimiter.release(createOrderCommand.getOrderId());
+                log.error("No se ha podido crear la orden {} del batch: {}", createOrderCommand.getOrderId(), throwable.getMessage());
+            }
+        });
+
+        return ResponseEntity.accepted().body(batchItems(createOrderCommands));
+    }
+
+    // igual que el anterior con ?stream=true, pero la respuesta es un stream SSE:
+    // primero un evento "accepted" con los orderId y después un evento "outcome" (OrderSummary) por orden
+    // si SAGA no termina una orden en responseTimeout se manda como CREATED, igual que el 202 de newOrder
+    @PostMapping(value = "batch", params = "stream=true", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter createOrdersStream(@Valid @RequestBody OrderBatchCreateRest orderBatchCreateRest) {
+
+        List<CreateOrderCommand> createOrderCommands = createOrderCommands(orderBatchCreateRest);
+        admit(createOrderCommands);
+
+        SseEmitter sseEmitter = new SseEmitter(batchStreamTimeout.toMillis());
+        Map<String, SubscriptionQueryResult<OrderSummary, OrderSummary>> subscriptions = new ConcurrentHashMap<>();
+        AtomicInteger pending = new AtomicInteger(createOrderCommands.size());
+        AtomicBoolean completed = new AtomicBoolean();
+
+        // onCompletion también se ejecuta con error, timeout o desconexión del cliente
+        sseEmitter.onCompletion(() -> {
+            completed.set(true);
+            subscriptions.keySet().forEach(orderId -> closeSubscription(subscriptions, orderId));
+        });
+
+        sendEvent(sseEmitter, "accepted", batchItems(createOrderCommands));
+
+        orderBatchDispatcher.dispatch(createOrderCommands,
+                // la suscripción se abre antes de enviar el COMMAND para no perder el update de SAGA
+                // con el stream ya cerrado no hace falta: la orden sigue su curso y se consulta por getOrder
+                createOrderCommand -> {
+                    if (completed.get()) return;
+
+                    String orderId = createOrderCommand.getOrderId();
+                    subscriptions.put(orderId, subscribe(orderId));
+                    // el stream se ha cerrado mientras se abría: onCompletion ya no la va a ver
+                    if (completed.get()) closeSubscription(subscriptions, orderId);
+                },
+                (createOrderCommand, throwable) -> {
+                    String orderId = createOrderCommand.getOrderId();
+
+                    if (throwable != null) {
+                        orderAdmissionLimiter.release(orderId);
+                        closeSubscription(subscriptions, orderId);
+                        sendOutcome(sseEmitter, pending, new OrderSummary(orderId, OrderStatus.REJECTED, throwable.getMessage()));
+                        return;
+                    }
+
+                    // sin suscripción el stream ya está cerrado (timeout o desconexión): no hay a quién mandar el resultado
+                    SubscriptionQueryResult<OrderSummary, OrderSummary> subscriptionQueryResult = subscriptions.get(orderId);
+                    if (subscriptionQueryResult == null) {
+                        orderAdmissionLimiter.release(orderId);
+                        return;
+                    }
+
+                    subscriptionQueryResult.updates().next()
+                            .timeout(responseTimeout)
+                            .toFuture()
+                            .whenComplete((orderSummary, error) -> {
+                                if (error == null && orderSummary != null) orderAdmissionLimiter.release(orderId);
+                                closeSubscription(subscriptions, orderId);
+                                sendOutcome(sseEmitter, pending, error == null
+                                        ? orderSummary
+                                        : new OrderSummary(orderId, OrderStatus.CREATED, "ORDER ACCEPTED, STILL PROCESSING"));
+                            });
+                });
+
+        return sseEmitter;
+    }
+
+    // parámetros: query a lanzar, tipo de respuesta inicial, tipo de respuesta final con el incremental update
+    private SubscriptionQueryResult<OrderSummary, OrderSummary> subscribe(String orderId) {
+
+        SubscriptionQueryResult<OrderSummary, OrderSummary> subscriptionQueryResult =
+                queryGateway.subscriptionQuery(new FindOrderQuery(orderId),
+                        ResponseTypes.instanceOf(OrderSummary.class),
+                        ResponseTypes.instanceOf(OrderSummary.class));
+
+        openSubscriptions.incrementAndGet();
+        openedSubscriptions.increment();
+
+        return subscriptionQueryResult;
+    }
+
+    // cada suscripción se cierra una única vez para que el gauge cuadre
+    private void close(SubscriptionQueryResult<OrderSummary, OrderSummary> subscriptionQueryResult) {
+        subscriptionQueryResult.close();
+        openSubscriptions.decrementAndGet();
+    }
+
+    private void closeSubscription(Map<String, SubscriptionQueryResult<OrderSummary, OrderSummary>> subscriptions, String orderId) {
+        SubscriptionQueryResult<OrderSummary, OrderSummary> subscriptionQueryResult = subscriptions.remove(orderId);
+        if (subscriptionQueryResult != null) close(subscriptionQueryResult);
+    }
+
+    private void sendOutcome(SseEmitter sseEmitter, AtomicInteger pending, OrderSummary orderSummary) {
+        sendEvent(sseEmitter, "outcome", orderSummary);
+        if (pending.decrementAndGet() == 0) sseEmitter.complete();
+    }
+
+    // si el cliente se ha desconectado no se puede escribir: las órdenes siguen su curso y se consultan por getOrder
+    private void sendEvent(SseEmitter sseEmitter, String name, Object data) {
+        try {
+            sseEmitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("No se ha podido enviar el evento {} del batch: {}", name, e.getMessage());
+        }
+    }
+
+    // el batch entra entero o se rechaza entero con 429
+    private void admit(List<CreateOrderCommand> createOrderCommands) {
+        orderAdmissionLimiter.acquire(createOrderCommands.stream()
+                .map(CreateOrderCommand::getOrderId)
+                .collect(Collectors.toList()));
+    }
+
+    private List<CreateOrderCommand> createOrderCommands(OrderBatchCreateRest orderBatchCreateRest) {
+        return orderBatchCreateRest.getOrders().stream()
+                .map(this::createOrderCommand)
+                .collect(Collectors.toList());
+    }
+
+    private CreateOrderCommand createOrderCommand(OrderCreateRest orderCreateRest) {
 
         String userId = "27b95829-4f3f-4ddf-8983-151ba010e35b";
-        String orderId = UUID.randomUUID().toString();
 
-        CreateOrderCommand createOrderCommand = CreateOrderCommand.builder()
-                .orderId(orderId)
+        return CreateOrderCommand.builder()
+                .orderId(UUID.randomUUID().toString())
                 .userId(userId)
                 .productId(orderCreateRest.getProductId())
                 .quantity(orderCreateRest.getQuantity())
                 .addressId(orderCreateRest.getAddressId())
                 .orderStatus(OrderStatus.CREATED)
                 .build();
+    }
 
-        // parámetros: query a lanzar, tipo de respuesta inicial, tipo de respuesta final con el incremental update
-        SubscriptionQueryResult<OrderSummary, OrderSummary> subscriptionQueryResult =
-                queryGateway.subscriptionQuery(new FindOrderQuery(orderId),
-                        ResponseTypes.instanceOf(OrderSummary.class),
-                        ResponseTypes.instanceOf(OrderSummary.class));
+    // las URL se construyen en el hilo de la petición (ServletUriComponentsBuilder usa la request actual)
+    private List<OrderBatchItem> batchItems(List<CreateOrderCommand> createOrderCommands) {
+        return createOrderCommands.stream()
+                .map(createOrderCommand -> new OrderBatchItem(createOrderCommand.getOrderId(), statusUri(createOrderCommand.getOrderId())))
+                .collect(Collectors.toList());
+    }
 
-        try {
-            commandGateway.sendAndWait(createOrderCommand);
-            // updates() se suscribe al FLUX (incremental update) para cualquier cambio
-            // blockFirst() bloquea el FLUX indefinidamente hasta que se reciba una respuesta
-            return subscriptionQueryResult.updates().blockFirst();
-        } finally {
-            subscriptionQueryResult.close();
-        }
+    private ResponseEntity<OrderSummary> accepted(String orderId, String traceId) {
+        return ResponseEntity.accepted()
+                .location(statusUri(orderId))
+                .header(TraceMetaData.TRACE_ID_HEADER, traceId)
+                .body(new OrderSummary(orderId, OrderStatus.CREATED, "ORDER ACCEPTED, STILL PROCESSING"));
+    }
+
+    private URI statusUri(String orderId) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/orders/getOrder/{id}")
+                .buildAndExpand(orderId)
+                .toUri();
     }
 }
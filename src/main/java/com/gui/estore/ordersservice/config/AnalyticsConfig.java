@@ -0,0 +1,29 @@
+package com.gui.estore.ordersservice.config;
+
+import com.gui.estore.ordersservice.analytics.OrderRollupStore;
+import org.axonframework.config.EventProcessingConfigurer;
+import org.axonframework.eventhandling.TrackingEventProcessorConfiguration;
+import org.axonframework.eventhandling.tokenstore.inmemory.InMemoryTokenStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Instant;
+
+// procesador de order-analytics-group: tracking de un hilo con el token en memoria
+// cada instancia lee todos los eventos (no comparte token con las demás) y al arrancar rehace los rollups
+// empezando por los eventos de la mayor retención, sin tocar la BD de la proyección
+@Configuration
+public class AnalyticsConfig {
+
+    @Autowired
+    public void configure(EventProcessingConfigurer configurer, OrderRollupStore orderRollupStore) {
+
+        configurer.registerTokenStore("order-analytics-group", configuration -> new InMemoryTokenStore());
+
+        configurer.registerTrackingEventProcessor("order-analytics-group",
+                org.axonframework.config.Configuration::eventStore,
+                configuration -> TrackingEventProcessorConfiguration.forSingleThreadedProcessing()
+                        .andInitialTrackingToken(eventSource ->
+                                eventSource.createTokenAt(Instant.now().minus(orderRollupStore.maxRetention()))));
+    }
+}
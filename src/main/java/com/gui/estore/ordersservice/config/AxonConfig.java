@@ -1,6 +1,17 @@
 package com.gui.estore.ordersservice.config;
 
+import com.gui.estore.ordersservice.core.OrderEventsHandler;
+import com.gui.estore.ordersservice.exceptions.BatchFallbackErrorHandler;
+import com.gui.estore.ordersservice.exceptions.BoundedRetryEventErrorHandler;
+import com.gui.estore.ordersservice.repositories.OrderRepository;
 import com.thoughtworks.xstream.XStream;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.axonframework.config.EventProcessingConfigurer;
+import org.axonframework.eventhandling.TrackingEventProcessorConfiguration;
+import org.axonframework.eventhandling.tokenstore.inmemory.InMemoryTokenStore;
+import org.axonframework.messaging.StreamableMessageSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -16,4 +27,47 @@ public class AxonConfig {
         });
         return xStream;
     }
+
+    // las excepciones de OrderEventsHandler se relanzan: el segmento hace rollback del lote y lo reintenta
+    // hasta orders.events.max-attempts veces, después el evento se descarta (BoundedRetryEventErrorHandler)
+    // OrderEventsHandler escribe el lote al hacer commit, fuera de los handlers: si falla, BatchFallbackErrorHandler
+    // hace que el reintento escriba evento a evento para que el fallo llegue a BoundedRetryEventErrorHandler con su evento
+    // no hace falta sequencing policy propia: la de por defecto (SequentialPerAggregatePolicy) ya agrupa por
+    // el identificador del AGGREGATE, que en los eventos de OrderAggregate es el orderId
+    @Autowired
+    public void configure(EventProcessingConfigurer configurer, MeterRegistry meterRegistry, OrderRepository orderRepository,
+                          OrderEventsHandler orderEventsHandler, @Value("${orders.events.max-attempts:5}") int maxAttempts) {
+        configurer.registerListenerInvocationErrorHandler("order-group",
+                configuration -> new BoundedRetryEventErrorHandler("order-group", maxAttempts, meterRegistry));
+        configurer.registerErrorHandler("order-group",
+                configuration -> new BatchFallbackErrorHandler(orderEventsHandler::writeIndividually));
+        // order-group era subscribing y no guardaba token: en una BD que ya tiene la proyección no hay fila en
+        // token_entry y desde el principio del stream se volvería a aplicar todo el histórico sobre la tabla orders
+        // con filas, el procesador empieza por el final del stream (lo anterior ya lo aplicó el subscribing);
+        // con la tabla vacía (BD nueva) la proyección se construye desde el principio
+        configurer.registerPooledStreamingEventProcessorConfiguration("order-group",
+                (configuration, builder) -> builder.initialToken(messageSource -> orderRepository.count() > 0
+                        ? messageSource.createHeadToken()
+                        : messageSource.createTailToken()));
+        // igual para los contadores por usuario (UserOrderSummaryEventsHandler): un evento que falla siempre
+        // no puede parar el único segmento de la proyección
+        configurer.registerListenerInvocationErrorHandler("user-order-summary-group",
+                configuration -> new BoundedRetryEventErrorHandler("user-order-summary-group", maxAttempts, meterRegistry));
+
+        // caché de FindOrderQuery (OrderSummaryCacheEventsHandler): token en memoria para que cada instancia lea
+        // todos los eventos, desde el final del stream porque al arrancar la caché está vacía
+        configurer.registerTokenStore("order-summary-cache-group", configuration -> new InMemoryTokenStore());
+        configurer.registerTrackingEventProcessor("order-summary-cache-group",
+                org.axonframework.config.Configuration::eventStore,
+                configuration -> TrackingEventProcessorConfiguration.forSingleThreadedProcessing()
+                        .andInitialTrackingToken(StreamableMessageSource::createHeadToken));
+
+        // liberación de órdenes en OrderAdmissionLimiter (OrderAdmissionEventsHandler): igual, cada instancia
+        // tiene que ver el final de sus órdenes aunque lo publique otra; desde el final porque al arrancar no hay ninguna
+        configurer.registerTokenStore("order-admission", configuration -> new InMemoryTokenStore());
+        configurer.registerTrackingEventProcessor("order-admission",
+                org.axonframework.config.Configuration::eventStore,
+                configuration -> TrackingEventProcessorConfiguration.forSingleThreadedProcessing()
+                        .andInitialTrackingToken(StreamableMessageSource::createHeadToken));
+    }
 }
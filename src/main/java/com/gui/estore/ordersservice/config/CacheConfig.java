@@ -0,0 +1,32 @@
+package com.gui.estore.ordersservice.config;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.store.MemoryStoreEvictionPolicy;
+import org.axonframework.common.caching.Cache;
+import org.axonframework.common.caching.EhCacheAdapter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// CacheManager de Ehcache del servicio: cachés de OrderSaga (SagaConfig) y de AGGREGATE del modo disruptor
+// (CommandBusConfig); cada una con su nombre, tamaño y TTL, el CacheManager solo las agrupa y las cierra al parar
+@Configuration
+public class CacheConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public CacheManager ehCacheManager() {
+        return CacheManager.create();
+    }
+
+    // caché LRU acotada de Ehcache
+    static Cache cache(CacheManager cacheManager, String name, int maxEntries, Duration timeToIdle) {
+
+        net.sf.ehcache.Cache ehCache = new net.sf.ehcache.Cache(new CacheConfiguration(name, maxEntries)
+                .memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.LRU)
+                .timeToIdleSeconds(timeToIdle.getSeconds()));
+
+        return new EhCacheAdapter(cacheManager.addCacheIfAbsent(ehCache));
+    }
+}
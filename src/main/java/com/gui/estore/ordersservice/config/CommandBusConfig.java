@@ -0,0 +1,84 @@
+package com.gui.estore.ordersservice.config;
+
+import com.gui.estore.ordersservice.commands.OrderAggregate;
+import net.sf.ehcache.CacheManager;
+import org.axonframework.commandhandling.CommandBus;
+import org.axonframework.common.caching.Cache;
+import org.axonframework.common.transaction.TransactionManager;
+import org.axonframework.disruptor.commandhandling.DisruptorCommandBus;
+import org.axonframework.eventsourcing.AggregateFactory;
+import org.axonframework.eventsourcing.SnapshotTriggerDefinition;
+import org.axonframework.eventsourcing.eventstore.EventStore;
+import org.axonframework.messaging.annotation.HandlerDefinition;
+import org.axonframework.messaging.annotation.ParameterResolverFactory;
+import org.axonframework.messaging.interceptors.CorrelationDataInterceptor;
+import org.axonframework.modelling.command.Repository;
+import org.axonframework.spring.config.AxonConfiguration;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// orders.command-bus.mode=disruptor: el segmento local del bus de COMMAND (el que ejecuta los COMMAND que llegan
+// de Axon Server a esta instancia) es un DisruptorCommandBus en lugar del SimpleCommandBus por defecto
+//  - los COMMAND entran en un ring buffer y los ejecutan invokerThreads hilos, siempre el mismo hilo por AGGREGATE
+//  - los AGGREGATE se quedan en una caché acotada: una orden activa no se vuelve a cargar del event store en cada COMMAND
+//  - la publicación de eventos y el commit se hacen en publisherThreads hilos aparte
+@Configuration
+@ConditionalOnProperty(name = "orders.command-bus.mode", havingValue = "disruptor")
+public class CommandBusConfig {
+
+    // mismo nombre de bean que el SimpleCommandBus de Axon, que deja de crearse al existir éste
+    @Bean(destroyMethod = "stop")
+    @Qualifier("localSegment")
+    public DisruptorCommandBus commandBus(TransactionManager transactionManager,
+                                          AxonConfiguration axonConfiguration,
+                                          Cache orderAggregateCache,
+                                          @Value("${orders.command-bus.disruptor.buffer-size:4096}") int bufferSize,
+                                          @Value("${orders.command-bus.disruptor.invoker-threads:2}") int invokerThreads,
+                                          @Value("${orders.command-bus.disruptor.publisher-threads:1}") int publisherThreads) {
+
+        DisruptorCommandBus disruptorCommandBus = DisruptorCommandBus.builder()
+                .transactionManager(transactionManager)
+                .messageMonitor(axonConfiguration.messageMonitor(CommandBus.class, "commandBus"))
+                .bufferSize(bufferSize)
+                .invokerThreadCount(invokerThreads)
+                .publisherThreadCount(publisherThreads)
+                .cache(orderAggregateCache)
+                .build();
+
+        // igual que el SimpleCommandBus de Axon: traceId/correlationId pasan a los eventos aplicados por el AGGREGATE
+        disruptorCommandBus.registerHandlerInterceptor(
+                new CorrelationDataInterceptor<>(axonConfiguration.correlationDataProviders()));
+
+        return disruptorCommandBus;
+    }
+
+    // caché propia de AGGREGATE, independiente de las de SAGA salvo por el CacheManager que las cierra (CacheConfig)
+    @Bean
+    public Cache orderAggregateCache(CacheManager ehCacheManager,
+                                     @Value("${orders.command-bus.disruptor.aggregate-cache.max-entries:10000}") int maxEntries,
+                                     @Value("${orders.command-bus.disruptor.aggregate-cache.time-to-idle:10m}") Duration timeToIdle) {
+        return CacheConfig.cache(ehCacheManager, "orderAggregateCache", maxEntries, timeToIdle);
+    }
+
+    // el AGGREGATE tiene que cargarse con el repositorio del propio DisruptorCommandBus (usa su caché y sus hilos)
+    // sustituye al orderAggregateRepository de OrderAggregateConfig, sin la métrica orders.aggregate.load:
+    // con la caché la mayoría de COMMAND no cargan del event store
+    @Bean
+    public Repository<OrderAggregate> orderAggregateRepository(DisruptorCommandBus commandBus,
+                                                               EventStore eventStore,
+                                                               AggregateFactory<OrderAggregate> orderAggregateFactory,
+                                                               SnapshotTriggerDefinition orderSnapshotTriggerDefinition,
+                                                               ParameterResolverFactory parameterResolverFactory,
+                                                               HandlerDefinition handlerDefinition,
+                                                               AxonConfiguration axonConfiguration) {
+
+        // mismos snapshots (OrderAggregateConfig), resolvers y handler definitions que el repositorio por defecto
+        return commandBus.createRepository(eventStore, orderAggregateFactory, orderSnapshotTriggerDefinition,
+                parameterResolverFactory, handlerDefinition, axonConfiguration::repository);
+    }
+}
@@ -0,0 +1,90 @@
+package com.gui.estore.ordersservice.config;
+
+import com.gui.estore.ordersservice.deadline.DeadlineFiringLagListener;
+import com.gui.estore.ordersservice.deadline.DeadlineMetricsInterceptor;
+import com.gui.estore.ordersservice.deadline.TimingWheelDeadlineManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.axonframework.config.ConfigurationScopeAwareProvider;
+import org.axonframework.deadline.DeadlineManager;
+import org.axonframework.deadline.SimpleDeadlineManager;
+import org.axonframework.deadline.quartz.QuartzDeadlineManager;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.spring.messaging.unitofwork.SpringTransactionManager;
+import org.quartz.Scheduler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.quartz.SchedulerFactoryBeanCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// orders.deadlines.manager elige dónde viven los Deadline de SAGA:
+//  - simple: en memoria (se pierden al reiniciar)
+//  - quartz: en BD (tablas QRTZ_), sobreviven reinicios y se reparten entre instancias (perfil quartz)
+//  - timing-wheel: en memoria sobre una rueda de tiempo, programar y cancelar en O(1) para mucho volumen
+@Configuration
+public class DeadlineConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "orders.deadlines.manager", havingValue = "simple", matchIfMissing = true)
+    public DeadlineManager deadlineManager(org.axonframework.config.Configuration configuration,
+                                           SpringTransactionManager transactionManager,
+                                           MeterRegistry meterRegistry) {
+
+        return instrumented(SimpleDeadlineManager.builder()
+                .scopeAwareProvider(new ConfigurationScopeAwareProvider(configuration))
+                .transactionManager(transactionManager)
+                .build(), meterRegistry);
+    }
+
+    // el payload del Deadline se guarda serializado con el serializer general
+    @Bean
+    @ConditionalOnProperty(name = "orders.deadlines.manager", havingValue = "quartz")
+    public DeadlineManager quartzDeadlineManager(org.axonframework.config.Configuration configuration,
+                                                 SpringTransactionManager transactionManager,
+                                                 Scheduler scheduler,
+                                                 Serializer serializer,
+                                                 MeterRegistry meterRegistry) {
+
+        return instrumented(QuartzDeadlineManager.builder()
+                .scheduler(scheduler)
+                .scopeAwareProvider(new ConfigurationScopeAwareProvider(configuration))
+                .transactionManager(transactionManager)
+                .serializer(serializer)
+                .build(), meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "orders.deadlines.manager", havingValue = "timing-wheel")
+    public DeadlineManager timingWheelDeadlineManager(org.axonframework.config.Configuration configuration,
+                                                      SpringTransactionManager transactionManager,
+                                                      @Value("${orders.deadlines.timing-wheel.tick:100ms}") Duration tick,
+                                                      @Value("${orders.deadlines.timing-wheel.ticks-per-wheel:512}") int ticksPerWheel,
+                                                      @Value("${orders.deadlines.timing-wheel.dispatch-threads:4}") int dispatchThreads,
+                                                      @Value("${orders.deadlines.timing-wheel.dispatch-batch-size:256}") int dispatchBatchSize,
+                                                      MeterRegistry meterRegistry) {
+
+        return instrumented(TimingWheelDeadlineManager.builder()
+                .scopeAwareProvider(new ConfigurationScopeAwareProvider(configuration))
+                .transactionManager(transactionManager)
+                .tickDuration(tick)
+                .ticksPerWheel(ticksPerWheel)
+                .dispatchThreads(dispatchThreads)
+                .dispatchBatchSize(dispatchBatchSize)
+                .build(), meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "orders.deadlines.manager", havingValue = "quartz")
+    public SchedulerFactoryBeanCustomizer deadlineFiringLagCustomizer(MeterRegistry meterRegistry) {
+        return schedulerFactoryBean ->
+                schedulerFactoryBean.setGlobalTriggerListeners(new DeadlineFiringLagListener(meterRegistry));
+    }
+
+    // orders.deadline.fired por nombre de Deadline
+    private static DeadlineManager instrumented(DeadlineManager deadlineManager, MeterRegistry meterRegistry) {
+        deadlineManager.registerHandlerInterceptor(new DeadlineMetricsInterceptor(meterRegistry));
+        return deadlineManager;
+    }
+}
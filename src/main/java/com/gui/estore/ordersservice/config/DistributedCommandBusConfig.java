@@ -0,0 +1,87 @@
+package com.gui.estore.ordersservice.config;
+
+import org.axonframework.axonserver.connector.AxonServerConfiguration;
+import org.axonframework.axonserver.connector.AxonServerConnectionManager;
+import org.axonframework.axonserver.connector.command.AxonServerCommandBus;
+import org.axonframework.commandhandling.CommandBus;
+import org.axonframework.commandhandling.SimpleCommandBus;
+import org.axonframework.commandhandling.distributed.CommandBusConnector;
+import org.axonframework.commandhandling.distributed.CommandRouter;
+import org.axonframework.commandhandling.distributed.DistributedCommandBus;
+import org.axonframework.common.transaction.TransactionManager;
+import org.axonframework.messaging.interceptors.CorrelationDataInterceptor;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.spring.config.AxonConfiguration;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+// perfil distributed: solo los COMMAND de órdenes se reparten con DistributedCommandBus + Spring Cloud discovery,
+// eventos, QUERY y los COMMAND a otros servicios siguen en Axon Server (OrderCommandRoutingBus)
+// los buses se crean aquí y no en las autoconfiguraciones: las de Axon Server y DistributedCommandBus
+// dejan de crear el suyo al existir éstos y no compiten por ser el CommandBus @Primary
+@Configuration
+@ConditionalOnProperty(name = "axon.distributed.enabled", havingValue = "true")
+public class DistributedCommandBusConfig {
+
+    // el CommandBus que usan CommandGateway y los handlers de OrderAggregate
+    @Bean
+    @Primary
+    public OrderCommandRoutingBus orderCommandRoutingBus(DistributedCommandBus distributedCommandBus,
+                                                         AxonServerCommandBus axonServerCommandBus) {
+        return new OrderCommandRoutingBus(distributedCommandBus, axonServerCommandBus);
+    }
+
+    // anillo de hash consistente sobre @TargetAggregateIdentifier con las instancias de order-service del discovery
+    @Bean
+    public DistributedCommandBus distributedCommandBus(CommandRouter commandRouter,
+                                                       CommandBusConnector commandBusConnector,
+                                                       AxonConfiguration axonConfiguration,
+                                                       @Value("${axon.distributed.load-factor:100}") int loadFactor) {
+
+        DistributedCommandBus distributedCommandBus = DistributedCommandBus.builder()
+                .commandRouter(commandRouter)
+                .connector(commandBusConnector)
+                .messageMonitor(axonConfiguration.messageMonitor(DistributedCommandBus.class, "distributedCommandBus"))
+                .build();
+        distributedCommandBus.updateLoadFactor(loadFactor);
+
+        return distributedCommandBus;
+    }
+
+    // solo para enviar: ReserveProductCommand, ProcessPaymentCommand... llegan a su servicio por Axon Server
+    @Bean
+    public AxonServerCommandBus axonServerCommandBus(AxonServerConnectionManager axonServerConnectionManager,
+                                                     AxonServerConfiguration axonServerConfiguration,
+                                                     @Qualifier("localSegment") CommandBus localSegment,
+                                                     @Qualifier("messageSerializer") Serializer messageSerializer) {
+
+        return AxonServerCommandBus.builder()
+                .axonServerConnectionManager(axonServerConnectionManager)
+                .configuration(axonServerConfiguration)
+                .localSegment(localSegment)
+                .serializer(messageSerializer)
+                .build();
+    }
+
+    // segmento local con orders.command-bus.mode=simple: Axon no crea su SimpleCommandBus al existir
+    // orderCommandRoutingBus, con disruptor es el DisruptorCommandBus de CommandBusConfig
+    @Bean
+    @Qualifier("localSegment")
+    @ConditionalOnProperty(name = "orders.command-bus.mode", havingValue = "simple", matchIfMissing = true)
+    public SimpleCommandBus commandBus(TransactionManager transactionManager, AxonConfiguration axonConfiguration) {
+
+        SimpleCommandBus simpleCommandBus = SimpleCommandBus.builder()
+                .transactionManager(transactionManager)
+                .messageMonitor(axonConfiguration.messageMonitor(CommandBus.class, "commandBus"))
+                .build();
+
+        simpleCommandBus.registerHandlerInterceptor(
+                new CorrelationDataInterceptor<>(axonConfiguration.correlationDataProviders()));
+
+        return simpleCommandBus;
+    }
+}
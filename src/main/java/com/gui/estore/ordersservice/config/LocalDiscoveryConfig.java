@@ -0,0 +1,51 @@
+package com.gui.estore.ordersservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.cloud.client.discovery.simple.SimpleDiscoveryClient;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// perfil distributed-local: discovery estático sin Eureka
+// SpringCloudCommandRouter recalcula el anillo de hash consistente con cada HeartbeatEvent del discovery
+// Eureka los publica al refrescar su lista de instancias; aquí cada orders.distributed.membership-refresh
+// se comprueba qué nodos de la lista responden (ReachableDiscoveryClient) y se publica uno
+@Configuration
+@ConditionalOnProperty(name = "orders.distributed.membership-refresh")
+public class LocalDiscoveryConfig {
+
+    @Bean
+    public ReachableDiscoveryClient reachableDiscoveryClient(SimpleDiscoveryClient simpleDiscoveryClient,
+                                                             @Value("${orders.distributed.connect-timeout:500ms}") Duration connectTimeout) {
+        return new ReachableDiscoveryClient(simpleDiscoveryClient, connectTimeout);
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService membershipRefresher(ReachableDiscoveryClient reachableDiscoveryClient,
+                                                        ApplicationEventPublisher applicationEventPublisher,
+                                                        @Value("${orders.distributed.membership-refresh}") Duration interval) {
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "membership-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        AtomicLong beat = new AtomicLong();
+        scheduler.scheduleAtFixedRate(() -> {
+                    reachableDiscoveryClient.refresh();
+                    applicationEventPublisher.publishEvent(new HeartbeatEvent(scheduler, beat.incrementAndGet()));
+                },
+                interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+
+        return scheduler;
+    }
+}
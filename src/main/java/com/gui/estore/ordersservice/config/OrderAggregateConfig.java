@@ -0,0 +1,78 @@
+package com.gui.estore.ordersservice.config;
+
+import com.gui.estore.ordersservice.commands.OrderAggregate;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.axonframework.eventsourcing.AggregateFactory;
+import org.axonframework.eventsourcing.EventCountSnapshotTriggerDefinition;
+import org.axonframework.eventsourcing.EventSourcingRepository;
+import org.axonframework.eventsourcing.GenericAggregateFactory;
+import org.axonframework.eventsourcing.NoSnapshotTriggerDefinition;
+import org.axonframework.eventsourcing.SnapshotTriggerDefinition;
+import org.axonframework.eventsourcing.Snapshotter;
+import org.axonframework.eventsourcing.eventstore.EventStore;
+import org.axonframework.messaging.annotation.HandlerDefinition;
+import org.axonframework.messaging.annotation.ParameterResolverFactory;
+import org.axonframework.modelling.command.Repository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class OrderAggregateConfig {
+
+    // la usan orderAggregateRepository, el repositorio de DisruptorCommandBus (CommandBusConfig)
+    // y el Snapshotter para reconstruir OrderAggregate a partir del snapshot
+    @Bean
+    public AggregateFactory<OrderAggregate> orderAggregateFactory() {
+        return new GenericAggregateFactory<>(OrderAggregate.class);
+    }
+
+    // snapshot cada orders.snapshot.threshold eventos: al cargar el AGGREGATE solo se leen los posteriores
+    // hoy una orden tiene dos eventos y no llega al umbral; cuenta para los eventos de ciclo de vida que se añadan
+    // el snapshot se serializa con el serializer de eventos
+    @Bean
+    public SnapshotTriggerDefinition orderSnapshotTriggerDefinition(Snapshotter snapshotter,
+                                                                    @Value("${orders.snapshot.threshold:10}") int threshold) {
+
+        if (threshold <= 0) return NoSnapshotTriggerDefinition.INSTANCE;
+
+        return new EventCountSnapshotTriggerDefinition(snapshotter, threshold);
+    }
+
+    // con orders.command-bus.mode=disruptor el repositorio lo crea DisruptorCommandBus (CommandBusConfig)
+    @Bean
+    @ConditionalOnProperty(name = "orders.command-bus.mode", havingValue = "simple", matchIfMissing = true)
+    public Repository<OrderAggregate> orderAggregateRepository(EventStore eventStore,
+                                                               AggregateFactory<OrderAggregate> orderAggregateFactory,
+                                                               SnapshotTriggerDefinition orderSnapshotTriggerDefinition,
+                                                               ParameterResolverFactory parameterResolverFactory,
+                                                               HandlerDefinition handlerDefinition,
+                                                               MeterRegistry meterRegistry) {
+
+        // tag snapshot: cada carga cuenta en el timer de las que empiezan por un snapshot o en el de las que no
+        TimedEventSourcingRepository.LoadTimers loadTimers = new TimedEventSourcingRepository.LoadTimers(
+                loadTimer(meterRegistry, true), loadTimer(meterRegistry, false));
+
+        // mismos resolvers de parámetros y handler definitions (interceptores, @MetaDataValue...) que el repositorio
+        // que crearía Axon para @Aggregate
+        EventSourcingRepository.Builder<OrderAggregate> builder = EventSourcingRepository.builder(OrderAggregate.class)
+                .eventStore(eventStore)
+                .aggregateFactory(orderAggregateFactory)
+                .snapshotTriggerDefinition(orderSnapshotTriggerDefinition)
+                .parameterResolverFactory(parameterResolverFactory)
+                .handlerDefinition(handlerDefinition);
+
+        return new TimedEventSourcingRepository<>(builder, loadTimers);
+    }
+
+    private static Timer loadTimer(MeterRegistry meterRegistry, boolean fromSnapshot) {
+        return Timer.builder("orders.aggregate.load")
+                .description("Tiempo de carga de OrderAggregate desde el event store")
+                .tag("aggregate", OrderAggregate.class.getSimpleName())
+                .tag("snapshot", String.valueOf(fromSnapshot))
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+}
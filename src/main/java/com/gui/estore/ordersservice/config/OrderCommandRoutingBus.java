@@ -0,0 +1,79 @@
+package com.gui.estore.ordersservice.config;
+
+import org.axonframework.commandhandling.CommandBus;
+import org.axonframework.commandhandling.CommandCallback;
+import org.axonframework.commandhandling.CommandMessage;
+import org.axonframework.common.Registration;
+import org.axonframework.lifecycle.Lifecycle;
+import org.axonframework.messaging.MessageDispatchInterceptor;
+import org.axonframework.messaging.MessageHandler;
+import org.axonframework.messaging.MessageHandlerInterceptor;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// perfil distributed: bus de COMMAND con dos caminos
+//  - los COMMAND que tienen handler en esta instancia (los de OrderAggregate) van por DistributedCommandBus,
+//    a la instancia de order-service dueña del orderId en el anillo de hash consistente
+//  - el resto (ReserveProductCommand, ProcessPaymentCommand... que manda SAGA) siguen por Axon Server hasta su servicio
+// los handlers solo se suscriben en DistributedCommandBus: Axon Server no reparte COMMAND de órdenes
+// los dos buses comparten el segmento local (SimpleCommandBus o DisruptorCommandBus)
+public class OrderCommandRoutingBus implements CommandBus, Lifecycle {
+
+    private final CommandBus distributedCommandBus;
+    private final CommandBus axonServerCommandBus;
+    private final Set<String> localCommands = ConcurrentHashMap.newKeySet();
+
+    public OrderCommandRoutingBus(CommandBus distributedCommandBus, CommandBus axonServerCommandBus) {
+        this.distributedCommandBus = distributedCommandBus;
+        this.axonServerCommandBus = axonServerCommandBus;
+    }
+
+    @Override
+    public <C> void dispatch(CommandMessage<C> command) {
+        route(command).dispatch(command);
+    }
+
+    @Override
+    public <C, R> void dispatch(CommandMessage<C> command, CommandCallback<? super C, ? super R> callback) {
+        route(command).dispatch(command, callback);
+    }
+
+    @Override
+    public Registration subscribe(String commandName, MessageHandler<? super CommandMessage<?>> handler) {
+
+        localCommands.add(commandName);
+        Registration registration = distributedCommandBus.subscribe(commandName, handler);
+
+        return () -> {
+            localCommands.remove(commandName);
+            return registration.cancel();
+        };
+    }
+
+    // los interceptores de handler van al segmento local, que es el mismo para los dos buses
+    @Override
+    public Registration registerHandlerInterceptor(MessageHandlerInterceptor<? super CommandMessage<?>> handlerInterceptor) {
+        return distributedCommandBus.registerHandlerInterceptor(handlerInterceptor);
+    }
+
+    @Override
+    public Registration registerDispatchInterceptor(MessageDispatchInterceptor<? super CommandMessage<?>> dispatchInterceptor) {
+
+        Registration distributed = distributedCommandBus.registerDispatchInterceptor(dispatchInterceptor);
+        Registration axonServer = axonServerCommandBus.registerDispatchInterceptor(dispatchInterceptor);
+
+        return () -> distributed.cancel() | axonServer.cancel();
+    }
+
+    // Axon arranca y para el bus registrado como CommandBus: las fases de los dos buses cuelgan de éste
+    @Override
+    public void registerLifecyclePhaseHandlers(LifecycleRegistry lifecycle) {
+        if (distributedCommandBus instanceof Lifecycle) ((Lifecycle) distributedCommandBus).registerLifecyclePhaseHandlers(lifecycle);
+        if (axonServerCommandBus instanceof Lifecycle) ((Lifecycle) axonServerCommandBus).registerLifecyclePhaseHandlers(lifecycle);
+    }
+
+    private CommandBus route(CommandMessage<?> command) {
+        return localCommands.contains(command.getCommandName()) ? distributedCommandBus : axonServerCommandBus;
+    }
+}
@@ -0,0 +1,79 @@
+package com.gui.estore.ordersservice.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.simple.SimpleDiscoveryClient;
+import org.springframework.core.Ordered;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+// perfil distributed-local: la lista fija de SimpleDiscoveryClient filtrada a las instancias que responden
+// SpringCloudCommandRouter aparta las instancias cuya información de routing no puede pedir y solo las vuelve a
+// considerar cuando desaparecen del discovery: con la lista fija un nodo parado se quedaría fuera para siempre,
+// así sale de la lista mientras está parado y al volver entra como instancia nueva
+@Slf4j
+public class ReachableDiscoveryClient implements DiscoveryClient {
+
+    private final SimpleDiscoveryClient simpleDiscoveryClient;
+    private final Predicate<ServiceInstance> probe;
+
+    private volatile Map<String, List<ServiceInstance>> reachable = Map.of();
+
+    public ReachableDiscoveryClient(SimpleDiscoveryClient simpleDiscoveryClient, Duration connectTimeout) {
+        this(simpleDiscoveryClient, serviceInstance -> isListening(serviceInstance, connectTimeout));
+    }
+
+    ReachableDiscoveryClient(SimpleDiscoveryClient simpleDiscoveryClient, Predicate<ServiceInstance> probe) {
+        this.simpleDiscoveryClient = simpleDiscoveryClient;
+        this.probe = probe;
+    }
+
+    // se llama antes de cada HeartbeatEvent (LocalDiscoveryConfig)
+    public void refresh() {
+        reachable = simpleDiscoveryClient.getServices().stream()
+                .collect(Collectors.toUnmodifiableMap(Function.identity(), serviceId -> simpleDiscoveryClient.getInstances(serviceId).stream()
+                        .filter(probe)
+                        .collect(Collectors.toUnmodifiableList())));
+    }
+
+    @Override
+    public List<ServiceInstance> getInstances(String serviceId) {
+        return reachable.getOrDefault(serviceId, List.of());
+    }
+
+    @Override
+    public List<String> getServices() {
+        return List.copyOf(reachable.keySet());
+    }
+
+    @Override
+    public String description() {
+        return "SimpleDiscoveryClient filtrado a las instancias alcanzables";
+    }
+
+    // por delante de SimpleDiscoveryClient en CompositeDiscoveryClient, que solo pasa a la lista fija si ésta
+    // viene vacía (al arrancar, antes del primer refresh con la propia instancia escuchando)
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    private static boolean isListening(ServiceInstance serviceInstance, Duration connectTimeout) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(serviceInstance.getHost(), serviceInstance.getPort()), (int) connectTimeout.toMillis());
+            return true;
+        } catch (IOException e) {
+            log.debug("Instancia {} no alcanzable: {}", serviceInstance.getUri(), e.getMessage());
+            return false;
+        }
+    }
+}
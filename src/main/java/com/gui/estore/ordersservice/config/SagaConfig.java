@@ -0,0 +1,44 @@
+package com.gui.estore.ordersservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.sf.ehcache.CacheManager;
+import org.axonframework.common.jpa.EntityManagerProvider;
+import org.axonframework.modelling.saga.repository.CachingSagaStore;
+import org.axonframework.modelling.saga.repository.SagaStore;
+import org.axonframework.modelling.saga.repository.jpa.JpaSagaStore;
+import org.axonframework.serialization.Serializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// saga store de OrderSaga: JPA (tabla association_value_entry indexada por sagaType + key + value)
+// con caché acotada de instancias y de asociaciones delante para no deserializar SAGA en cada evento
+@Configuration
+public class SagaConfig {
+
+    @Bean
+    public SagaStore<Object> orderSagaStore(EntityManagerProvider entityManagerProvider,
+                                            Serializer serializer,
+                                            CacheManager ehCacheManager,
+                                            MeterRegistry meterRegistry,
+                                            @Value("${orders.saga-cache.max-entries:10000}") int maxEntries,
+                                            @Value("${orders.saga-cache.time-to-idle:10m}") Duration timeToIdle) {
+
+        JpaSagaStore jpaSagaStore = JpaSagaStore.builder()
+                .entityManagerProvider(entityManagerProvider)
+                .serializer(serializer)
+                .build();
+
+        // write-through: cada cambio de SAGA se sigue guardando en BD en la misma unidad de trabajo
+        // al terminar SAGA (@EndSaga) deleteSaga la saca también de las cachés
+        CachingSagaStore<Object> cachingSagaStore = CachingSagaStore.<Object>builder()
+                .delegateSagaStore(jpaSagaStore)
+                .sagaCache(CacheConfig.cache(ehCacheManager, "orderSagaCache", maxEntries, timeToIdle))
+                .associationsCache(CacheConfig.cache(ehCacheManager, "orderSagaAssociationsCache", maxEntries, timeToIdle))
+                .build();
+
+        return new TimedSagaStore<>(cachingSagaStore, meterRegistry);
+    }
+}
@@ -0,0 +1,68 @@
+package com.gui.estore.ordersservice.config;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.thoughtworks.xstream.XStream;
+import org.axonframework.serialization.Serializer;
+import org.axonframework.serialization.json.JacksonSerializer;
+import org.axonframework.serialization.xml.XStreamSerializer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+// solo con orders.serializer.format=json|cbor, con xstream se quedan los serializers que configura AXON
+@Configuration
+@ConditionalOnExpression("'${orders.serializer.format:xstream}' != 'xstream'")
+public class SerializerConfig {
+
+    // sagas, tokens y deadlines
+    @Bean
+    @Primary
+    public Serializer serializer(XStream xStream, @Value("${orders.serializer.format}") String format) {
+        return new XStreamFallbackSerializer(jacksonSerializer(format), xStreamSerializer(xStream));
+    }
+
+    // eventos y snapshots
+    @Bean
+    @Qualifier("eventSerializer")
+    public Serializer eventSerializer(XStream xStream, @Value("${orders.serializer.format}") String format) {
+        return new XStreamFallbackSerializer(jacksonSerializer(format), xStreamSerializer(xStream));
+    }
+
+    // COMMAND y QUERY viajan a otros servicios que siguen con XStream
+    @Bean
+    @Qualifier("messageSerializer")
+    public Serializer messageSerializer(XStream xStream) {
+        return xStreamSerializer(xStream);
+    }
+
+    static JacksonSerializer jacksonSerializer(String format) {
+
+        ObjectMapper objectMapper = "cbor".equalsIgnoreCase(format)
+                ? new ObjectMapper(new CBORFactory())
+                : new ObjectMapper();
+
+        // por campos y no por getters: OrderSaga no tiene getters y los campos transient no se serializan
+        objectMapper.findAndRegisterModules()
+                .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+                .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+                .setVisibility(PropertyAccessor.CREATOR, JsonAutoDetect.Visibility.ANY)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        return JacksonSerializer.builder()
+                .objectMapper(objectMapper)
+                .build();
+    }
+
+    static XStreamSerializer xStreamSerializer(XStream xStream) {
+        return XStreamSerializer.builder()
+                .xStream(xStream)
+                .build();
+    }
+}
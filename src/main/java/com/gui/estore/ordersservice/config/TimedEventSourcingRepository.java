@@ -0,0 +1,61 @@
+package com.gui.estore.ordersservice.config;
+
+import io.micrometer.core.instrument.Timer;
+import org.axonframework.eventsourcing.EventSourcedAggregate;
+import org.axonframework.eventsourcing.EventSourcingRepository;
+import org.axonframework.eventsourcing.eventstore.DomainEventStream;
+
+import java.util.concurrent.TimeUnit;
+
+// EventSourcingRepository que mide cuánto tarda en cargar el AGGREGATE (lectura del snapshot + replay de eventos)
+// en un timer u otro según la carga haya empezado por un snapshot
+public class TimedEventSourcingRepository<T> extends EventSourcingRepository<T> {
+
+    private final LoadTimers loadTimers;
+
+    // readEvents y doLoadWithLock se llaman en el mismo hilo durante la carga
+    private final ThreadLocal<Boolean> fromSnapshot = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    public TimedEventSourcingRepository(Builder<T> builder, LoadTimers loadTimers) {
+        super(builder);
+        this.loadTimers = loadTimers;
+    }
+
+    @Override
+    protected EventSourcedAggregate<T> doLoadWithLock(String aggregateIdentifier, Long expectedVersion) {
+
+        long start = System.nanoTime();
+        fromSnapshot.set(Boolean.FALSE);
+
+        try {
+            return super.doLoadWithLock(aggregateIdentifier, expectedVersion);
+        } finally {
+            (fromSnapshot.get() ? loadTimers.fromSnapshot : loadTimers.fromEvents)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            fromSnapshot.remove();
+        }
+    }
+
+    // el event store devuelve el snapshot como primer evento, con el propio AGGREGATE como payload
+    @Override
+    protected DomainEventStream readEvents(String aggregateIdentifier) {
+
+        DomainEventStream domainEventStream = super.readEvents(aggregateIdentifier);
+
+        fromSnapshot.set(domainEventStream.hasNext()
+                && aggregateModel().entityClass().isAssignableFrom(domainEventStream.peek().getPayloadType()));
+
+        return domainEventStream;
+    }
+
+    public static class LoadTimers {
+
+        private final Timer fromSnapshot;
+        private final Timer fromEvents;
+
+        public LoadTimers(Timer fromSnapshot, Timer fromEvents) {
+            this.fromSnapshot = fromSnapshot;
+            this.fromEvents = fromEvents;
+        }
+    }
+}
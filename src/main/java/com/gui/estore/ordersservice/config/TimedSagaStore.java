@@ -0,0 +1,64 @@
+package com.gui.estore.ordersservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.axonframework.modelling.saga.AssociationValue;
+import org.axonframework.modelling.saga.AssociationValues;
+import org.axonframework.modelling.saga.repository.SagaStore;
+
+import java.util.Set;
+
+// SagaStore que mide la latencia de cada operación sobre el store al que delega (orders.saga.store)
+public class TimedSagaStore<T> implements SagaStore<T> {
+
+    private final SagaStore<T> delegate;
+    private final Timer findTimer;
+    private final Timer loadTimer;
+    private final Timer insertTimer;
+    private final Timer updateTimer;
+    private final Timer deleteTimer;
+
+    public TimedSagaStore(SagaStore<T> delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.findTimer = timer(meterRegistry, "find");
+        this.loadTimer = timer(meterRegistry, "load");
+        this.insertTimer = timer(meterRegistry, "insert");
+        this.updateTimer = timer(meterRegistry, "update");
+        this.deleteTimer = timer(meterRegistry, "delete");
+    }
+
+    @Override
+    public Set<String> findSagas(Class<? extends T> sagaType, AssociationValue associationValue) {
+        return findTimer.record(() -> delegate.findSagas(sagaType, associationValue));
+    }
+
+    @Override
+    public <S extends T> Entry<S> loadSaga(Class<S> sagaType, String sagaIdentifier) {
+        return loadTimer.record(() -> delegate.loadSaga(sagaType, sagaIdentifier));
+    }
+
+    @Override
+    public void deleteSaga(Class<? extends T> sagaType, String sagaIdentifier, Set<AssociationValue> associationValues) {
+        deleteTimer.record(() -> delegate.deleteSaga(sagaType, sagaIdentifier, associationValues));
+    }
+
+    @Override
+    public void insertSaga(Class<? extends T> sagaType, String sagaIdentifier, T saga,
+                           Set<AssociationValue> associationValues) {
+        insertTimer.record(() -> delegate.insertSaga(sagaType, sagaIdentifier, saga, associationValues));
+    }
+
+    @Override
+    public void updateSaga(Class<? extends T> sagaType, String sagaIdentifier, T saga,
+                           AssociationValues associationValues) {
+        updateTimer.record(() -> delegate.updateSaga(sagaType, sagaIdentifier, saga, associationValues));
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("orders.saga.store")
+                .description("Latencia del saga store")
+                .tag("operation", operation)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,30 @@
+package com.gui.estore.ordersservice.config;
+
+import com.gui.estore.ordersservice.tracing.OrderTraceCollector;
+import com.gui.estore.ordersservice.tracing.TracingDispatchInterceptor;
+import com.gui.estore.ordersservice.tracing.TracingHandlerInterceptor;
+import org.axonframework.commandhandling.CommandBus;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.axonframework.config.EventProcessingConfigurer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+
+// spans de la traza de cada orden: COMMAND enviados, COMMAND ejecutados y EVENT en todos los procesadores (proyección y SAGA)
+@Configuration
+@ConditionalOnProperty(name = "orders.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class TracingConfig {
+
+    @Autowired
+    public void configure(EventProcessingConfigurer configurer,
+                          CommandBus commandBus,
+                          CommandGateway commandGateway,
+                          OrderTraceCollector orderTraceCollector) {
+
+        configurer.registerDefaultHandlerInterceptor(
+                (configuration, processingGroup) -> new TracingHandlerInterceptor(orderTraceCollector, processingGroup));
+
+        commandBus.registerHandlerInterceptor(new TracingHandlerInterceptor(orderTraceCollector, "command-bus"));
+        commandGateway.registerDispatchInterceptor(new TracingDispatchInterceptor(orderTraceCollector));
+    }
+}
@@ -0,0 +1,84 @@
+package com.gui.estore.ordersservice.config;
+
+import org.axonframework.serialization.Converter;
+import org.axonframework.serialization.SerializedObject;
+import org.axonframework.serialization.SerializedType;
+import org.axonframework.serialization.Serializer;
+
+// serializa siempre con el serializer nuevo (JSON/CBOR)
+// al deserializar, si el contenido es XML (datos guardados antes del cambio) lo lee con XStream
+public class XStreamFallbackSerializer implements Serializer {
+
+    private final Serializer delegate;
+    private final Serializer xStreamSerializer;
+
+    public XStreamFallbackSerializer(Serializer delegate, Serializer xStreamSerializer) {
+        this.delegate = delegate;
+        this.xStreamSerializer = xStreamSerializer;
+    }
+
+    @Override
+    public <T> SerializedObject<T> serialize(Object object, Class<T> expectedRepresentation) {
+        return delegate.serialize(object, expectedRepresentation);
+    }
+
+    @Override
+    public <T> boolean canSerializeTo(Class<T> expectedRepresentation) {
+        return delegate.canSerializeTo(expectedRepresentation);
+    }
+
+    @Override
+    public <S, T> T deserialize(SerializedObject<S> serializedObject) {
+        return isXml(serializedObject)
+                ? xStreamSerializer.deserialize(serializedObject)
+                : delegate.deserialize(serializedObject);
+    }
+
+    @Override
+    public Class classForType(SerializedType type) {
+        return delegate.classForType(type);
+    }
+
+    @Override
+    public SerializedType typeForClass(Class type) {
+        return delegate.typeForClass(type);
+    }
+
+    @Override
+    public Converter getConverter() {
+        return delegate.getConverter();
+    }
+
+    // XStream empieza siempre por '<'; ningún documento JSON ni item CBOR válido empieza por ese byte
+    private boolean isXml(SerializedObject<?> serializedObject) {
+
+        Object data = serializedObject.getData();
+
+        // sin getBytes(): copiaría el payload entero en cada deserialize solo para mirar el primer carácter
+        if (data instanceof String) return startsWithTag((String) data);
+        if (data instanceof byte[]) return startsWithTag((byte[]) data);
+
+        Converter converter = xStreamSerializer.getConverter();
+
+        if (!converter.canConvert(serializedObject.getContentType(), byte[].class)) return false;
+
+        return startsWithTag(converter.convert(serializedObject, byte[].class).getData());
+    }
+
+    private boolean startsWithTag(String text) {
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) return c == '<';
+        }
+        return false;
+    }
+
+    private boolean startsWithTag(byte[] bytes) {
+
+        for (byte b : bytes) {
+            if (!Character.isWhitespace(b)) return b == '<';
+        }
+        return false;
+    }
+}
@@ -1,68 +1,94 @@
 package com.gui.estore.ordersservice.core;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.gui.estore.ordersservice.core.events.OrderApprovedEvent;
 import com.gui.estore.ordersservice.core.events.OrderCreatedEvent;
 import com.gui.estore.ordersservice.core.events.OrderRejectedEvent;
+import com.gui.estore.ordersservice.mappers.OrderMapper;
 import com.gui.estore.ordersservice.model.OrderEntity;
 import com.gui.estore.ordersservice.model.OrderStatus;
 import com.gui.estore.ordersservice.repositories.OrderRepository;
 import org.axonframework.config.ProcessingGroup;
 import org.axonframework.eventhandling.EventHandler;
+import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.eventhandling.Timestamp;
+import org.axonframework.messaging.annotation.MessageIdentifier;
 import org.axonframework.messaging.interceptors.ExceptionHandler;
-import org.springframework.beans.BeanUtils;
+import org.axonframework.messaging.unitofwork.CurrentUnitOfWork;
+import org.axonframework.messaging.unitofwork.UnitOfWork;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Component
 @ProcessingGroup("order-group")
 // agrupado con OrderLookupEventsHandler para compartir hilo de ejecución (por rollbacks)
 public class OrderEventsHandler {
 
+    private static final String PENDING_WRITES = OrderEventsHandler.class.getName() + ".pendingWrites";
+
     private final OrderRepository orderRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate eventTransaction;
+
+    // identificadores de EVENT de lotes que han fallado (BatchFallbackErrorHandler): en el reintento se escriben
+    // de uno en uno
+    private final Cache<String, Boolean> individualWrites = CacheBuilder.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
 
     @Autowired
-    public OrderEventsHandler(OrderRepository orderRepository) {
+    public OrderEventsHandler(OrderRepository orderRepository, EntityManager entityManager,
+                              PlatformTransactionManager transactionManager) {
         this.orderRepository = orderRepository;
+        this.entityManager = entityManager;
+        this.eventTransaction = new TransactionTemplate(transactionManager);
+        this.eventTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
+    // los handlers no escriben en BD: acumulan los cambios del lote de eventos
+    // y se aplican todos juntos antes del commit de la unidad de trabajo (salvo en el reintento de un lote fallido)
     @EventHandler
-    public void on(OrderCreatedEvent orderCreatedEvent) {
+    public void on(OrderCreatedEvent orderCreatedEvent, @Timestamp Instant timestamp, @MessageIdentifier String eventId) {
 
-        OrderEntity orderEntity = new OrderEntity();
+        OrderEntity orderEntity = OrderMapper.toOrderEntity(orderCreatedEvent, timestamp);
 
-        BeanUtils.copyProperties(orderCreatedEvent, orderEntity);
-
-        try {
-            orderRepository.save(orderEntity);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        write(eventId, pendingWrites -> pendingWrites.created.putIfAbsent(orderEntity.getOrderId(), orderEntity));
     }
 
     @EventHandler
-    public void on(OrderApprovedEvent orderApprovedEvent) {
+    public void on(OrderApprovedEvent orderApprovedEvent, @MessageIdentifier String eventId) {
 
-        OrderEntity orderEntity = orderRepository.findByOrderId(orderApprovedEvent.getOrderId())
-                .orElseThrow(() -> new RuntimeException("No hay orden que aprovar en BD"));
-
-        orderEntity.setOrderStatus(orderApprovedEvent.getOrderStatus());
-
-        orderRepository.save(orderEntity);
+        write(eventId, pendingWrites ->
+                pendingWrites.statusChanges.put(orderApprovedEvent.getOrderId(), orderApprovedEvent.getOrderStatus()));
     }
 
     @EventHandler
-    public void on(OrderRejectedEvent orderRejectedEvent) {
-
-        OrderEntity orderEntity = orderRepository.findByOrderId(orderRejectedEvent.getOrderId())
-                .orElseThrow(() -> new RuntimeException("No hay orden que rechazar en BD"));
+    public void on(OrderRejectedEvent orderRejectedEvent, @MessageIdentifier String eventId) {
 
-        orderEntity.setOrderStatus(orderRejectedEvent.getOrderStatus());
+        write(eventId, pendingWrites ->
+                pendingWrites.statusChanges.put(orderRejectedEvent.getOrderId(), orderRejectedEvent.getOrderStatus()));
+    }
 
-        try {
-            orderRepository.save(orderEntity);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    // un fallo en flush no pasa por el ListenerInvocationErrorHandler (BoundedRetryEventErrorHandler) porque ocurre
+    // al hacer commit y no en un handler: el ErrorHandler del procesador marca aquí los eventos del lote antes del reintento
+    public void writeIndividually(List<? extends EventMessage<?>> eventMessages) {
+        eventMessages.forEach(eventMessage -> individualWrites.put(eventMessage.getIdentifier(), Boolean.TRUE));
     }
 
 
@@ -78,4 +104,66 @@ public class OrderEventsHandler {
     private void handle(IllegalArgumentException exception) throws IllegalArgumentException {
         throw exception;
     }
+
+    // evento de un lote que ha fallado: se escribe ya, en su propia transacción, y si falla la excepción sale del
+    // handler con su evento para que BoundedRetryEventErrorHandler lo reintente o lo descarte sin perder el resto
+    // del lote; lo que se escribe así queda en BD aunque el lote vuelva a fallar, los eventos repetidos no cambian nada
+    private void write(String eventId, Consumer<PendingWrites> change) {
+
+        if (individualWrites.asMap().remove(eventId) == null) {
+            change.accept(pendingWrites());
+            return;
+        }
+
+        PendingWrites pendingWrites = new PendingWrites();
+        change.accept(pendingWrites);
+        eventTransaction.executeWithoutResult(status -> flush(pendingWrites));
+    }
+
+    // un PendingWrites por unidad de trabajo raíz: con un procesador en lotes es el lote entero,
+    // con uno subscribing es la unidad de trabajo del COMMAND que publicó el evento
+    private PendingWrites pendingWrites() {
+
+        UnitOfWork<?> unitOfWork = CurrentUnitOfWork.get().root();
+
+        return unitOfWork.getOrComputeResource(PENDING_WRITES, key -> {
+            PendingWrites pendingWrites = new PendingWrites();
+            unitOfWork.onPrepareCommit(u -> flush(pendingWrites));
+            return pendingWrites;
+        });
+    }
+
+    private void flush(PendingWrites pendingWrites) {
+
+        // inserts en batch JDBC (hibernate.jdbc.batch_size) antes de los updates,
+        // por si una orden se crea y se aprueba/rechaza en el mismo lote
+        // un OrderCreatedEvent que vuelve a llegar (reintento del lote, replay sobre una BD con datos) no se inserta
+        // otra vez: solo se persisten las órdenes que aún no están en BD
+        if (!pendingWrites.created.isEmpty()) {
+            Set<String> existing = orderRepository.findExistingOrderIds(pendingWrites.created.keySet());
+            pendingWrites.created.forEach((orderId, orderEntity) -> {
+                if (!existing.contains(orderId)) entityManager.persist(orderEntity);
+            });
+            entityManager.flush();
+        }
+
+        // un único UPDATE ... WHERE order_id IN (...) por estado
+        Map<OrderStatus, List<String>> orderIdsByStatus = new EnumMap<>(OrderStatus.class);
+        pendingWrites.statusChanges.forEach((orderId, orderStatus) ->
+                orderIdsByStatus.computeIfAbsent(orderStatus, status -> new ArrayList<>()).add(orderId));
+
+        orderIdsByStatus.forEach((orderStatus, orderIds) -> {
+            int updated = orderRepository.updateOrderStatus(orderIds, orderStatus);
+
+            if (updated != orderIds.size())
+                throw new RuntimeException("No hay orden que " + (orderStatus == OrderStatus.APPROVED ? "aprobar" : "rechazar")
+                        + " en BD. Órdenes: " + orderIds);
+        });
+    }
+
+    private static class PendingWrites {
+        private final Map<String, OrderEntity> created = new LinkedHashMap<>();
+        // LinkedHashMap: si una orden cambia dos veces en el lote gana el último estado
+        private final Map<String, OrderStatus> statusChanges = new LinkedHashMap<>();
+    }
 }
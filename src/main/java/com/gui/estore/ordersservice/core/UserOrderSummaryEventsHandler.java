@@ -0,0 +1,130 @@
+package com.gui.estore.ordersservice.core;
+
+import com.gui.estore.ordersservice.core.events.OrderApprovedEvent;
+import com.gui.estore.ordersservice.core.events.OrderCreatedEvent;
+import com.gui.estore.ordersservice.core.events.OrderRejectedEvent;
+import com.gui.estore.ordersservice.model.OrderStatus;
+import com.gui.estore.ordersservice.model.UserOrderLookupEntity;
+import com.gui.estore.ordersservice.model.UserOrderSummaryEntity;
+import com.gui.estore.ordersservice.repositories.UserOrderLookupRepository;
+import com.gui.estore.ordersservice.repositories.UserOrderSummaryRepository;
+import org.axonframework.config.ProcessingGroup;
+import org.axonframework.eventhandling.EventHandler;
+import org.axonframework.eventhandling.ResetHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// proyección de contadores por usuario: cada evento actualiza una fila de user_order_summaries (y una de lookup)
+// sin recorrer la tabla orders
+// user_order_lookup solo guarda las órdenes en validación: al aprobarse o rechazarse ya no hay más cambios que
+// contar y la fila se borra, así la tabla no crece con el histórico de órdenes
+// procesador propio de un solo segmento (application.properties): los eventos de órdenes distintas del mismo usuario
+// tocan la misma fila y con varios segmentos se podrían pisar; OrderApprovedEvent/OrderRejectedEvent no llevan
+// userId para secuenciar por él
+@Component
+@ProcessingGroup("user-order-summary-group")
+public class UserOrderSummaryEventsHandler {
+
+    private final UserOrderSummaryRepository userOrderSummaryRepository;
+    private final UserOrderLookupRepository userOrderLookupRepository;
+    private final int recentOrders;
+
+    public UserOrderSummaryEventsHandler(UserOrderSummaryRepository userOrderSummaryRepository,
+                                         UserOrderLookupRepository userOrderLookupRepository,
+                                         @Value("${orders.user-summary.recent-orders:10}") int recentOrders) {
+        this.userOrderSummaryRepository = userOrderSummaryRepository;
+        this.userOrderLookupRepository = userOrderLookupRepository;
+        // 100 ids caben en la columna recentOrderIds
+        this.recentOrders = Math.max(1, Math.min(100, recentOrders));
+    }
+
+    @EventHandler
+    public void on(OrderCreatedEvent orderCreatedEvent) {
+
+        // un evento repetido (reintento del lote) no se cuenta dos veces
+        if (userOrderLookupRepository.existsById(orderCreatedEvent.getOrderId())) return;
+
+        userOrderLookupRepository.save(new UserOrderLookupEntity(
+                orderCreatedEvent.getOrderId(), orderCreatedEvent.getUserId(), OrderStatus.ON_VALIDATION));
+
+        UserOrderSummaryEntity userOrderSummary = userOrderSummaryRepository.findById(orderCreatedEvent.getUserId())
+                .orElseGet(() -> new UserOrderSummaryEntity(orderCreatedEvent.getUserId(), 0, 0, 0, 0, ""));
+
+        userOrderSummary.setTotal(userOrderSummary.getTotal() + 1);
+        userOrderSummary.setOnValidation(userOrderSummary.getOnValidation() + 1);
+        userOrderSummary.setRecentOrderIds(addRecent(userOrderSummary.getRecentOrderIds(), orderCreatedEvent.getOrderId()));
+
+        userOrderSummaryRepository.save(userOrderSummary);
+    }
+
+    @EventHandler
+    public void on(OrderApprovedEvent orderApprovedEvent) {
+        changeStatus(orderApprovedEvent.getOrderId(), OrderStatus.APPROVED);
+    }
+
+    @EventHandler
+    public void on(OrderRejectedEvent orderRejectedEvent) {
+        changeStatus(orderRejectedEvent.getOrderId(), OrderStatus.REJECTED);
+    }
+
+    // replay desde el principio: se rehacen los contadores
+    @ResetHandler
+    public void reset() {
+        userOrderSummaryRepository.deleteAllInBatch();
+        userOrderLookupRepository.deleteAllInBatch();
+    }
+
+    // se descuenta del estado anterior y se suma al final; sin fila de lookup la orden ya estaba contada como final
+    // (evento repetido) y no se toca nada
+    private void changeStatus(String orderId, OrderStatus orderStatus) {
+
+        userOrderLookupRepository.findById(orderId)
+                .filter(userOrderLookup -> userOrderLookup.getOrderStatus() != orderStatus)
+                .ifPresent(userOrderLookup -> {
+
+                    userOrderSummaryRepository.findById(userOrderLookup.getUserId()).ifPresent(userOrderSummary -> {
+                        count(userOrderSummary, userOrderLookup.getOrderStatus(), -1);
+                        count(userOrderSummary, orderStatus, 1);
+                        userOrderSummaryRepository.save(userOrderSummary);
+                    });
+
+                    userOrderLookupRepository.delete(userOrderLookup);
+                });
+    }
+
+    private static void count(UserOrderSummaryEntity userOrderSummary, OrderStatus orderStatus, int delta) {
+
+        switch (orderStatus) {
+            case ON_VALIDATION:
+                userOrderSummary.setOnValidation(userOrderSummary.getOnValidation() + delta);
+                break;
+            case APPROVED:
+                userOrderSummary.setApproved(userOrderSummary.getApproved() + delta);
+                break;
+            case REJECTED:
+                userOrderSummary.setRejected(userOrderSummary.getRejected() + delta);
+                break;
+            default:
+                break;
+        }
+    }
+
+    // como mucho recentOrders ids, el nuevo delante
+    private String addRecent(String recentOrderIds, String orderId) {
+
+        List<String> orderIds = new ArrayList<>(recentOrders);
+        orderIds.add(orderId);
+
+        if (recentOrderIds != null && !recentOrderIds.isEmpty()) {
+            Arrays.stream(recentOrderIds.split(","))
+                    .limit(recentOrders - 1L)
+                    .forEach(orderIds::add);
+        }
+
+        return String.join(",", orderIds);
+    }
+}
@@ -0,0 +1,59 @@
+package com.gui.estore.ordersservice.deadline;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.quartz.JobExecutionContext;
+import org.quartz.Trigger;
+import org.quartz.TriggerListener;
+
+import java.util.concurrent.TimeUnit;
+
+// retraso entre la hora programada de cada Deadline y la hora real en que Quartz lo dispara
+public class DeadlineFiringLagListener implements TriggerListener {
+
+    private final MeterRegistry meterRegistry;
+
+    public DeadlineFiringLagListener(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public String getName() {
+        return "deadline-firing-lag";
+    }
+
+    @Override
+    public void triggerFired(Trigger trigger, JobExecutionContext context) {
+
+        if (context.getScheduledFireTime() == null) return;
+
+        long lagMillis = context.getFireTime().getTime() - context.getScheduledFireTime().getTime();
+
+        // el grupo del trigger es el deadlineName que pasa SAGA
+        Timer.builder("orders.deadline.firing.lag")
+                .tag("deadline", trigger.getKey().getGroup())
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry)
+                .record(Math.max(lagMillis, 0), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean vetoJobExecution(Trigger trigger, JobExecutionContext context) {
+        return false;
+    }
+
+    @Override
+    public void triggerMisfired(Trigger trigger) {
+
+        Counter.builder("orders.deadline.misfired")
+                .tag("deadline", trigger.getKey().getGroup())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    @Override
+    public void triggerComplete(Trigger trigger, JobExecutionContext context,
+                                Trigger.CompletedExecutionInstruction triggerInstructionCode) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.gui.estore.ordersservice.deadline;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.axonframework.deadline.DeadlineMessage;
+import org.axonframework.messaging.InterceptorChain;
+import org.axonframework.messaging.MessageHandlerInterceptor;
+import org.axonframework.messaging.unitofwork.UnitOfWork;
+
+// cuenta los Deadline que llegan a ejecutarse, por nombre de Deadline (las cancelaciones se cuentan en SAGA)
+// se registra en el DeadlineManager activo, sea cual sea (DeadlineConfig)
+public class DeadlineMetricsInterceptor implements MessageHandlerInterceptor<DeadlineMessage<?>> {
+
+    private final MeterRegistry meterRegistry;
+
+    public DeadlineMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object handle(UnitOfWork<? extends DeadlineMessage<?>> unitOfWork, InterceptorChain interceptorChain) throws Exception {
+
+        Counter.builder("orders.deadline.fired")
+                .description("Deadlines de SAGA que han vencido sin cancelarse")
+                .tag("deadline", unitOfWork.getMessage().getDeadlineName())
+                .register(meterRegistry)
+                .increment();
+
+        return interceptorChain.proceed();
+    }
+}
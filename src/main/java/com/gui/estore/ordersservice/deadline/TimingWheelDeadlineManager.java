@@ -0,0 +1,381 @@
+package com.gui.estore.ordersservice.deadline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.common.AxonThreadFactory;
+import org.axonframework.common.transaction.NoTransactionManager;
+import org.axonframework.common.transaction.TransactionManager;
+import org.axonframework.config.ScopeAwareProvider;
+import org.axonframework.deadline.AbstractDeadlineManager;
+import org.axonframework.deadline.DeadlineException;
+import org.axonframework.deadline.DeadlineMessage;
+import org.axonframework.messaging.DefaultInterceptorChain;
+import org.axonframework.messaging.InterceptorChain;
+import org.axonframework.messaging.ResultMessage;
+import org.axonframework.messaging.ScopeDescriptor;
+import org.axonframework.messaging.unitofwork.DefaultUnitOfWork;
+import org.axonframework.messaging.unitofwork.UnitOfWork;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.axonframework.deadline.GenericDeadlineMessage.asDeadlineMessage;
+
+/**
+ * DeadlineManager en memoria sobre una rueda de tiempo (hashed timing wheel).
+ * <p>
+ * Programar y cancelar cuesta O(1): el Deadline se encola y el hilo de la rueda lo coloca en su casilla en el
+ * siguiente tick; cancelar solo marca el Deadline y lo saca de su casilla. En cada tick se recorre una única casilla
+ * y los Deadlines vencidos se despachan en lotes al pool de ejecución. Los Deadlines se disparan con una precisión de
+ * un tick como mucho de retraso, nunca antes de tiempo.
+ * <p>
+ * Igual que {@link org.axonframework.deadline.SimpleDeadlineManager}, los Deadlines se pierden al reiniciar.
+ */
+@Slf4j
+public class TimingWheelDeadlineManager extends AbstractDeadlineManager {
+
+    private final ScopeAwareProvider scopeAwareProvider;
+    private final TransactionManager transactionManager;
+    private final long tickMillis;
+    private final int dispatchBatchSize;
+
+    private final Bucket[] wheel;
+    private final int mask;
+
+    // scheduleId -> Deadline pendiente, para cancelar en O(1)
+    private final Map<String, Timeout> timeouts = new ConcurrentHashMap<>();
+    // altas y bajas pendientes de aplicar en la rueda, solo el hilo de la rueda toca las casillas
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final Thread worker;
+    private final ExecutorService dispatchExecutor;
+    private final long startTime;
+    private volatile boolean running = true;
+    private long tick;
+
+    protected TimingWheelDeadlineManager(Builder builder) {
+        builder.validate();
+
+        this.scopeAwareProvider = builder.scopeAwareProvider;
+        this.transactionManager = builder.transactionManager;
+        this.tickMillis = builder.tickDuration.toMillis();
+        this.dispatchBatchSize = builder.dispatchBatchSize;
+
+        // tamaño potencia de 2 para calcular la casilla con una máscara
+        int wheelSize = 1;
+        while (wheelSize < builder.ticksPerWheel) wheelSize <<= 1;
+        this.wheel = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) wheel[i] = new Bucket();
+        this.mask = wheelSize - 1;
+
+        this.dispatchExecutor = Executors.newFixedThreadPool(builder.dispatchThreads,
+                new AxonThreadFactory("deadline-dispatch"));
+
+        this.startTime = System.currentTimeMillis();
+        this.worker = new AxonThreadFactory("deadline-timing-wheel").newThread(this::run);
+        this.worker.start();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public String schedule(Instant triggerDateTime, String deadlineName, Object messageOrPayload,
+                           ScopeDescriptor deadlineScope) {
+
+        DeadlineMessage<?> deadlineMessage = asDeadlineMessage(deadlineName, messageOrPayload, triggerDateTime);
+        String scheduleId = deadlineMessage.getIdentifier();
+
+        runOnPrepareCommitOrNow(() -> {
+            Timeout timeout = new Timeout(scheduleId, deadlineName, processDispatchInterceptors(deadlineMessage),
+                    deadlineScope, triggerDateTime.toEpochMilli());
+
+            timeouts.put(scheduleId, timeout);
+            pendingTimeouts.add(timeout);
+        });
+
+        return scheduleId;
+    }
+
+    @Override
+    public void cancelSchedule(String deadlineName, String scheduleId) {
+        runOnPrepareCommitOrNow(() -> {
+            Timeout timeout = timeouts.get(scheduleId);
+
+            if (timeout != null && timeout.deadlineName.equals(deadlineName)) cancel(timeout);
+        });
+    }
+
+    @Override
+    public void cancelAll(String deadlineName) {
+        runOnPrepareCommitOrNow(() -> timeouts.values().stream()
+                .filter(timeout -> timeout.deadlineName.equals(deadlineName))
+                .forEach(this::cancel));
+    }
+
+    @Override
+    public void cancelAllWithinScope(String deadlineName, ScopeDescriptor scope) {
+        runOnPrepareCommitOrNow(() -> timeouts.values().stream()
+                .filter(timeout -> timeout.deadlineName.equals(deadlineName) && timeout.deadlineScope.equals(scope))
+                .forEach(this::cancel));
+    }
+
+    // Spring lo llama al cerrar el contexto (destroy method inferido)
+    public void shutdown() {
+        running = false;
+        worker.interrupt();
+        dispatchExecutor.shutdown();
+    }
+
+    private void cancel(Timeout timeout) {
+        if (timeout.state.compareAndSet(Timeout.PENDING, Timeout.CANCELLED)) {
+            timeouts.remove(timeout.scheduleId, timeout);
+            cancelledTimeouts.add(timeout);
+        }
+    }
+
+    // ---------  HILO DE LA RUEDA  ---------
+
+    private void run() {
+        while (running) {
+            long tickDeadline = startTime + (tick + 1) * tickMillis;
+
+            if (!sleepUntil(tickDeadline)) return;
+
+            removeCancelled();
+            transferPending();
+
+            List<Timeout> expired = wheel[(int) (tick & mask)].expire();
+            if (!expired.isEmpty()) dispatch(expired);
+
+            tick++;
+        }
+    }
+
+    private boolean sleepUntil(long tickDeadline) {
+        long sleepMillis = tickDeadline - System.currentTimeMillis();
+
+        if (sleepMillis <= 0) return running;
+
+        try {
+            Thread.sleep(sleepMillis);
+            return running;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) timeout.bucket.remove(timeout);
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.state.get() != Timeout.PENDING) continue;
+
+            long calculatedTick = (timeout.triggerMillis - startTime) / tickMillis;
+            timeout.remainingRounds = (calculatedTick - tick) / wheel.length;
+
+            // los que ya han vencido van a la casilla actual y salen en este mismo tick
+            long ticks = Math.max(calculatedTick, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    // los vencidos de un tick se reparten en lotes de dispatchBatchSize, una tarea por lote
+    private void dispatch(List<Timeout> expired) {
+        for (int from = 0; from < expired.size(); from += dispatchBatchSize) {
+            List<Timeout> batch = expired.subList(from, Math.min(from + dispatchBatchSize, expired.size()));
+            dispatchExecutor.execute(() -> batch.forEach(this::execute));
+        }
+    }
+
+    // ---------  EJECUCIÓN  ---------
+
+    private void execute(Timeout timeout) {
+
+        if (!timeout.state.compareAndSet(Timeout.PENDING, Timeout.EXPIRED)) return;
+
+        timeouts.remove(timeout.scheduleId, timeout);
+
+        UnitOfWork<DeadlineMessage<?>> unitOfWork = new DefaultUnitOfWork<>(timeout.deadlineMessage);
+        unitOfWork.attachTransaction(transactionManager);
+
+        InterceptorChain chain = new DefaultInterceptorChain<>(unitOfWork, handlerInterceptors(),
+                deadlineMessage -> {
+                    executeScheduledDeadline(deadlineMessage, timeout.deadlineScope);
+                    return null;
+                });
+
+        ResultMessage<?> resultMessage = unitOfWork.executeWithResult(chain::proceed);
+
+        if (resultMessage.isExceptional()) {
+            log.error("Error al ejecutar el Deadline {} con scheduleId {}",
+                    timeout.deadlineName, timeout.scheduleId, resultMessage.exceptionResult());
+        }
+    }
+
+    private void executeScheduledDeadline(DeadlineMessage<?> deadlineMessage, ScopeDescriptor deadlineScope) {
+        scopeAwareProvider.provideScopeAwareStream(deadlineScope)
+                .filter(scopeAwareComponent -> scopeAwareComponent.canResolve(deadlineScope))
+                .forEach(scopeAwareComponent -> {
+                    try {
+                        scopeAwareComponent.send(deadlineMessage, deadlineScope);
+                    } catch (Exception e) {
+                        throw new DeadlineException("Error al procesar el Deadline " + deadlineMessage.getDeadlineName(), e);
+                    }
+                });
+    }
+
+    // ---------  ESTRUCTURAS DE LA RUEDA  ---------
+
+    private static class Timeout {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final String scheduleId;
+        private final String deadlineName;
+        private final DeadlineMessage<?> deadlineMessage;
+        private final ScopeDescriptor deadlineScope;
+        private final long triggerMillis;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        // solo los toca el hilo de la rueda
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(String scheduleId, String deadlineName, DeadlineMessage<?> deadlineMessage,
+                        ScopeDescriptor deadlineScope, long triggerMillis) {
+            this.scheduleId = scheduleId;
+            this.deadlineName = deadlineName;
+            this.deadlineMessage = deadlineMessage;
+            this.deadlineScope = deadlineScope;
+            this.triggerMillis = triggerMillis;
+        }
+    }
+
+    // lista doblemente enlazada: alta y baja en O(1)
+    private static class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.prev != null) timeout.prev.next = timeout.next;
+            if (timeout.next != null) timeout.next.prev = timeout.prev;
+            if (timeout == head) head = timeout.next;
+            if (timeout == tail) tail = timeout.prev;
+
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        // saca los que vencen en esta vuelta y descuenta una vuelta al resto
+        private List<Timeout> expire() {
+            List<Timeout> expired = new ArrayList<>();
+
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+
+                if (timeout.state.get() != Timeout.PENDING) {
+                    remove(timeout);
+                } else if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    expired.add(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+            return expired;
+        }
+    }
+
+    public static class Builder {
+
+        private ScopeAwareProvider scopeAwareProvider;
+        private TransactionManager transactionManager = NoTransactionManager.INSTANCE;
+        private Duration tickDuration = Duration.ofMillis(100);
+        private int ticksPerWheel = 512;
+        private int dispatchThreads = 4;
+        private int dispatchBatchSize = 256;
+
+        public Builder scopeAwareProvider(ScopeAwareProvider scopeAwareProvider) {
+            this.scopeAwareProvider = scopeAwareProvider;
+            return this;
+        }
+
+        public Builder transactionManager(TransactionManager transactionManager) {
+            this.transactionManager = transactionManager;
+            return this;
+        }
+
+        // resolución de la rueda: un Deadline se dispara como mucho un tick tarde
+        public Builder tickDuration(Duration tickDuration) {
+            this.tickDuration = tickDuration;
+            return this;
+        }
+
+        // casillas de la rueda, se redondea a potencia de 2
+        public Builder ticksPerWheel(int ticksPerWheel) {
+            this.ticksPerWheel = ticksPerWheel;
+            return this;
+        }
+
+        public Builder dispatchThreads(int dispatchThreads) {
+            this.dispatchThreads = dispatchThreads;
+            return this;
+        }
+
+        public Builder dispatchBatchSize(int dispatchBatchSize) {
+            this.dispatchBatchSize = dispatchBatchSize;
+            return this;
+        }
+
+        public TimingWheelDeadlineManager build() {
+            return new TimingWheelDeadlineManager(this);
+        }
+
+        protected void validate() {
+            if (scopeAwareProvider == null) throw new IllegalStateException("ScopeAwareProvider es obligatorio");
+            if (transactionManager == null) throw new IllegalStateException("TransactionManager es obligatorio");
+            if (tickDuration == null || tickDuration.toMillis() < 1)
+                throw new IllegalStateException("tickDuration debe ser de al menos 1 ms");
+            if (ticksPerWheel < 1) throw new IllegalStateException("ticksPerWheel debe ser mayor que 0");
+            if (dispatchThreads < 1) throw new IllegalStateException("dispatchThreads debe ser mayor que 0");
+            if (dispatchBatchSize < 1) throw new IllegalStateException("dispatchBatchSize debe ser mayor que 0");
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.gui.estore.ordersservice.exceptions;
+
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.eventhandling.ErrorContext;
+import org.axonframework.eventhandling.ErrorHandler;
+import org.axonframework.eventhandling.EventMessage;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+// ErrorHandler del procesador: le llegan los errores que no salen de un handler, como los de las escrituras del lote
+// que OrderEventsHandler hace al hacer commit, y que por eso no ve BoundedRetryEventErrorHandler
+// marca los eventos del lote para que en el reintento se escriban de uno en uno (el que falla sale de su handler y
+// se reintenta o descarta por separado) y relanza para que el procesador haga rollback y reintente el lote
+@Slf4j
+public class BatchFallbackErrorHandler implements ErrorHandler {
+
+    private final Consumer<List<? extends EventMessage<?>>> writeIndividually;
+
+    public BatchFallbackErrorHandler(Consumer<List<? extends EventMessage<?>>> writeIndividually) {
+        this.writeIndividually = writeIndividually;
+    }
+
+    @Override
+    public void handleError(ErrorContext errorContext) throws Exception {
+
+        log.warn("Lote de {} eventos fallido en {}, se reintenta evento a evento: {}", errorContext.failedEvents().size(),
+                errorContext.eventProcessor(), errorContext.error().getMessage());
+
+        writeIndividually.accept(errorContext.failedEvents());
+
+        Throwable error = errorContext.error();
+        if (error instanceof Error) throw (Error) error;
+        throw (Exception) error;
+    }
+}
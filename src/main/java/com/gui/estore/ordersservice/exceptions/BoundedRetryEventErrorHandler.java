@@ -0,0 +1,55 @@
+package com.gui.estore.ordersservice.exceptions;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.eventhandling.EventMessageHandler;
+import org.axonframework.eventhandling.ListenerInvocationErrorHandler;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// relanza la excepción para que el procesador haga rollback del lote y lo reintente (error transitorio de BD),
+// pero como mucho maxAttempts veces por evento: después el evento se descarta con log de error y la métrica
+// orders.events.skipped, para que un evento que falla siempre no bloquee su segmento para siempre
+// los intentos se cuentan por instancia (si otra instancia reclama el segmento empieza de cero)
+@Slf4j
+public class BoundedRetryEventErrorHandler implements ListenerInvocationErrorHandler {
+
+    private final String processingGroup;
+    private final int maxAttempts;
+    private final Counter skippedEvents;
+
+    // identificador del EVENT -> intentos fallidos
+    private final Cache<String, AtomicInteger> attempts = CacheBuilder.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+
+    public BoundedRetryEventErrorHandler(String processingGroup, int maxAttempts, MeterRegistry meterRegistry) {
+        this.processingGroup = processingGroup;
+        this.maxAttempts = maxAttempts;
+        this.skippedEvents = meterRegistry.counter("orders.events.skipped", "processingGroup", processingGroup);
+    }
+
+    @Override
+    public void onError(Exception exception, EventMessage<?> eventMessage, EventMessageHandler eventMessageHandler) throws Exception {
+
+        String eventId = eventMessage.getIdentifier();
+        int attempt = attempts.asMap().computeIfAbsent(eventId, id -> new AtomicInteger()).incrementAndGet();
+
+        if (attempt < maxAttempts) {
+            log.warn("Error en {} con el evento {} ({}), intento {} de {}: {}", processingGroup, eventId,
+                    eventMessage.getPayloadType().getSimpleName(), attempt, maxAttempts, exception.getMessage());
+            throw exception;
+        }
+
+        attempts.invalidate(eventId);
+        skippedEvents.increment();
+        log.error("Evento {} ({}) descartado en {} tras {} intentos: {}", eventId,
+                eventMessage.getPayloadType().getSimpleName(), processingGroup, maxAttempts, eventMessage.getPayload(), exception);
+    }
+}
@@ -0,0 +1,9 @@
+package com.gui.estore.ordersservice.exceptions;
+
+// parámetros de consulta no válidos: 400 en lugar de 500
+public class InvalidQueryException extends RuntimeException {
+
+    public InvalidQueryException(String message) {
+        super(message);
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -48,6 +49,30 @@ public class OrderErrorHandler {
         return new ResponseEntity<>(new Error(errors.toString()), HttpStatus.BAD_REQUEST);
     }
 
+    // parámetros de consulta no válidos (ordenación, paginación, rangos)
+    @ExceptionHandler(InvalidQueryException.class)
+    public ResponseEntity<Error> invalidQueryHandler(InvalidQueryException e) {
+
+        return new ResponseEntity<>(new Error(e.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+
+    // @RequestParam con un valor que no se puede convertir (direction, status, fechas...)
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<Error> argumentTypeMismatchHandler(MethodArgumentTypeMismatchException e) {
+
+        return new ResponseEntity<>(new Error("Valor no válido para " + e.getName() + ": " + e.getValue()), HttpStatus.BAD_REQUEST);
+    }
+
+    // control de admisión (OrderAdmissionLimiter): el cliente puede reintentar pasado Retry-After
+    @ExceptionHandler(TooManyOrdersException.class)
+    public ResponseEntity<Error> tooManyOrdersHandler(TooManyOrdersException e) {
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().getSeconds())));
+
+        return new ResponseEntity<>(new Error(e.getMessage()), headers, HttpStatus.TOO_MANY_REQUESTS);
+    }
+
     // excepciones del AGGREGATE
     @ExceptionHandler(value = {CommandExecutionException.class})
     public ResponseEntity<Error> handleCommandExecutionException(CommandExecutionException e, WebRequest request) {
@@ -0,0 +1,17 @@
+package com.gui.estore.ordersservice.exceptions;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+// hay demasiadas órdenes en curso (OrderAdmissionLimiter): 429 con Retry-After
+@Getter
+public class TooManyOrdersException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public TooManyOrdersException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
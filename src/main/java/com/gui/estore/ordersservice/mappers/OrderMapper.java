@@ -0,0 +1,51 @@
+package com.gui.estore.ordersservice.mappers;
+
+import com.gui.estore.ordersservice.commands.CreateOrderCommand;
+import com.gui.estore.ordersservice.core.events.OrderCreatedEvent;
+import com.gui.estore.ordersservice.model.OrderEntity;
+import com.gui.estore.ordersservice.queries.rest.OrderRestModel;
+
+import java.time.Instant;
+
+// mapeos de la orden entre COMMAND, EVENT, entidad y modelo REST sin reflexión (sustituyen a BeanUtils.copyProperties)
+// al añadir un campo hay que añadirlo también aquí: BeanUtils lo copiaba solo si coincidía el nombre
+public final class OrderMapper {
+
+    private OrderMapper() {
+    }
+
+    // OrderAggregate
+    public static OrderCreatedEvent toOrderCreatedEvent(CreateOrderCommand createOrderCommand) {
+        return new OrderCreatedEvent(
+                createOrderCommand.getOrderId(),
+                createOrderCommand.getProductId(),
+                createOrderCommand.getUserId(),
+                createOrderCommand.getQuantity(),
+                createOrderCommand.getAddressId(),
+                createOrderCommand.getOrderStatus());
+    }
+
+    // OrderEventsHandler, createdAt es el timestamp del EVENT
+    public static OrderEntity toOrderEntity(OrderCreatedEvent orderCreatedEvent, Instant createdAt) {
+        return new OrderEntity(
+                orderCreatedEvent.getOrderId(),
+                orderCreatedEvent.getUserId(),
+                orderCreatedEvent.getProductId(),
+                orderCreatedEvent.getQuantity(),
+                orderCreatedEvent.getAddressId(),
+                orderCreatedEvent.getOrderStatus(),
+                createdAt);
+    }
+
+    // OrderQueryHandler y OrderExporter
+    public static OrderRestModel toOrderRestModel(OrderEntity orderEntity) {
+        return new OrderRestModel(
+                orderEntity.getOrderId(),
+                orderEntity.getUserId(),
+                orderEntity.getProductId(),
+                orderEntity.getQuantity(),
+                orderEntity.getAddressId(),
+                orderEntity.getOrderStatus(),
+                orderEntity.getCreatedAt());
+    }
+}
@@ -6,13 +6,19 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import javax.persistence.*;
+import java.time.Instant;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Entity
-@Table(name = "orders", schema = "public")
+// índices para las búsquedas paginadas de FindOrdersQuery por usuario y/o estado
+@Table(name = "orders", schema = "public", indexes = {
+        @Index(name = "idx_orders_user_id_status", columnList = "user_id, order_status"),
+        @Index(name = "idx_orders_status", columnList = "order_status"),
+        @Index(name = "idx_orders_created_at", columnList = "created_at")
+})
 public class OrderEntity {
 
     @Id
@@ -24,4 +30,6 @@ public class OrderEntity {
     private String addressId;
     @Enumerated(EnumType.STRING)
     private OrderStatus orderStatus;
+    // timestamp del OrderCreatedEvent
+    private Instant createdAt;
 }
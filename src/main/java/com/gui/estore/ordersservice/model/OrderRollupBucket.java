@@ -0,0 +1,17 @@
+package com.gui.estore.ordersservice.model;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+// órdenes creadas, aprobadas y rechazadas dentro de [start, start + granularidad)
+@Value
+public class OrderRollupBucket {
+
+    Instant start;
+    long created;
+    long approved;
+    long rejected;
+    // aprobadas / (aprobadas + rechazadas), 0 si no terminó ninguna
+    double approvalRate;
+}
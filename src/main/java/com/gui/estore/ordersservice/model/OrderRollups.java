@@ -0,0 +1,23 @@
+package com.gui.estore.ordersservice.model;
+
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.List;
+
+// respuesta de FindOrderRollupsQuery: buckets del rango, totales, motivos de rechazo más frecuentes
+// y si los rollups de la instancia que contesta ya están al día
+@Value
+public class OrderRollups {
+
+    RollupGranularity granularity;
+    Instant from;
+    Instant to;
+    long created;
+    long approved;
+    long rejected;
+    double approvalRate;
+    List<OrderRollupBucket> buckets;
+    List<RejectionReasonCount> topRejectionReasons;
+    RollupProgress progress;
+}
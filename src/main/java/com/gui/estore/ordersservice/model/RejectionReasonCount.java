@@ -0,0 +1,10 @@
+package com.gui.estore.ordersservice.model;
+
+import lombok.Value;
+
+@Value
+public class RejectionReasonCount {
+
+    String reason;
+    long count;
+}
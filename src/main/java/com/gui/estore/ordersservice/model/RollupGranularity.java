@@ -0,0 +1,23 @@
+package com.gui.estore.ordersservice.model;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+// tamaño de los buckets de OrderRollupStore (UTC)
+public enum RollupGranularity {
+    MINUTE(ChronoUnit.MINUTES), HOUR(ChronoUnit.HOURS), DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    RollupGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public Instant bucketStart(Instant instant) {
+        return instant.truncatedTo(unit);
+    }
+
+    public ChronoUnit getUnit() {
+        return unit;
+    }
+}
@@ -0,0 +1,14 @@
+package com.gui.estore.ordersservice.model;
+
+import lombok.Value;
+
+// hasta dónde ha leído order-analytics-group en la instancia que contesta
+// al arrancar lee desde la mayor retención: mientras no esté al día los rollups del rango pueden estar incompletos
+@Value
+public class RollupProgress {
+
+    boolean caughtUp;
+    boolean replaying;
+    // posición en el event store del último evento procesado, null si todavía no ha procesado ninguno
+    Long position;
+}
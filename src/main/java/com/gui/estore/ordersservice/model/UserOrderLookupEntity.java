@@ -0,0 +1,27 @@
+package com.gui.estore.ordersservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+// orderId -> userId y último estado contado, para la proyección de UserOrderSummaryEntity:
+// OrderApprovedEvent y OrderRejectedEvent no llevan userId y hay que saber de qué contador se descuenta
+// solo órdenes en validación: UserOrderSummaryEventsHandler borra la fila al aprobarse o rechazarse
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "user_order_lookup", schema = "public")
+public class UserOrderLookupEntity {
+
+    @Id
+    @Column(unique = true)
+    private String orderId;
+    private String userId;
+    @Enumerated(EnumType.STRING)
+    private OrderStatus orderStatus;
+}
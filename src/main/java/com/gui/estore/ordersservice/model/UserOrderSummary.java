@@ -0,0 +1,16 @@
+package com.gui.estore.ordersservice.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class UserOrderSummary {
+
+    String userId;
+    long total;
+    long onValidation;
+    long approved;
+    long rejected;
+    List<String> recentOrderIds;
+}
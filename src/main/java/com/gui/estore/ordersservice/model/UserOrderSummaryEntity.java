@@ -0,0 +1,29 @@
+package com.gui.estore.ordersservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+// contadores de órdenes por usuario (UserOrderSummaryEventsHandler), una fila por usuario
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "user_order_summaries", schema = "public")
+public class UserOrderSummaryEntity {
+
+    @Id
+    @Column(unique = true)
+    private String userId;
+    private long total;
+    private long onValidation;
+    private long approved;
+    private long rejected;
+    // últimos orderId del usuario separados por comas, el más reciente primero (orders.user-summary.recent-orders)
+    @Column(length = 4000)
+    private String recentOrderIds;
+}
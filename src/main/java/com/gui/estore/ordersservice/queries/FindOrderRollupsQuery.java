@@ -0,0 +1,33 @@
+package com.gui.estore.ordersservice.queries;
+
+import com.gui.estore.ordersservice.exceptions.InvalidQueryException;
+import com.gui.estore.ordersservice.model.RollupGranularity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FindOrderRollupsQuery {
+
+    private RollupGranularity granularity;
+    // [from, to)
+    private Instant from;
+    private Instant to;
+    // número de motivos de rechazo a devolver
+    private int topReasons;
+
+    // lo comprueba el controller antes de lanzar la QUERY (400) y OrderAnalyticsQueryHandler otra vez
+    public void validate() {
+
+        if (from != null && to != null && from.isAfter(to))
+            throw new InvalidQueryException("from (" + from + ") no puede ser posterior a to (" + to + ")");
+
+        if (topReasons < 0) throw new InvalidQueryException("top no puede ser negativo");
+    }
+}
@@ -1,14 +1,45 @@
 package com.gui.estore.ordersservice.queries;
 
+import com.gui.estore.ordersservice.exceptions.InvalidQueryException;
+import com.gui.estore.ordersservice.model.OrderStatus;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Sort;
+
+import java.util.Set;
 
 @Data
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
 public class FindOrdersQuery {
+
+    public static final Set<String> SORTABLE_PROPERTIES = Set.of("orderId", "userId", "productId", "quantity", "orderStatus");
+
     private String userId;
+    private OrderStatus orderStatus;
+
+    // paginación por offset
+    private int page;
+    private int size;
+    private String sortBy;
+    private Sort.Direction direction;
+
+    // paginación keyset para páginas profundas: si viene informado se ignora page y se devuelven
+    // las órdenes con orderId mayor (ASC) o menor (DESC) que éste; solo admite sortBy=orderId
+    private String afterOrderId;
+
+    // lo comprueba el controller antes de lanzar la QUERY (400) y OrderQueryHandler otra vez
+    public void validate() {
+
+        if (page < 0) throw new InvalidQueryException("page no puede ser negativo");
+
+        if (sortBy != null && !SORTABLE_PROPERTIES.contains(sortBy))
+            throw new InvalidQueryException("No se puede ordenar por " + sortBy + ", valores permitidos: " + SORTABLE_PROPERTIES);
+
+        if (afterOrderId != null && sortBy != null && !"orderId".equals(sortBy))
+            throw new InvalidQueryException("La paginación con after solo admite sortBy=orderId");
+    }
 }
@@ -0,0 +1,15 @@
+package com.gui.estore.ordersservice.queries;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FindUserOrderSummaryQuery {
+
+    private String userId;
+}
@@ -0,0 +1,94 @@
+package com.gui.estore.ordersservice.queries;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gui.estore.ordersservice.mappers.OrderMapper;
+import com.gui.estore.ordersservice.model.OrderEntity;
+import com.gui.estore.ordersservice.model.OrderStatus;
+import com.gui.estore.ordersservice.repositories.OrderRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+// no pasa por QueryGateway: una QUERY de AXON devuelve la respuesta entera en un único mensaje
+// aquí cada fila se escribe directamente en la respuesta según se lee del cursor, con memoria constante
+@Component
+public class OrderExporter {
+
+    private static final String CSV_HEADER = "orderId,userId,productId,quantity,addressId,orderStatus,createdAt";
+
+    private final OrderRepository orderRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public OrderExporter(OrderRepository orderRepository, EntityManager entityManager, ObjectMapper objectMapper) {
+        this.orderRepository = orderRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(readOnly = true)
+    public void export(OrderExportFormat format, String userId, OrderStatus orderStatus,
+                       Instant createdFrom, Instant createdTo, OutputStream outputStream) throws IOException {
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+
+        if (format == OrderExportFormat.CSV) writer.write(CSV_HEADER + "\n");
+
+        try (Stream<OrderEntity> orders = orderRepository.streamOrders(userId, orderStatus, createdFrom, createdTo)) {
+
+            Iterator<OrderEntity> iterator = orders.iterator();
+
+            while (iterator.hasNext()) {
+                OrderEntity orderEntity = iterator.next();
+
+                writer.write(format == OrderExportFormat.CSV ? toCsv(orderEntity) : toJson(orderEntity));
+                writer.write("\n");
+
+                // sacamos la entidad del contexto de persistencia para que no crezca con cada fila
+                entityManager.detach(orderEntity);
+            }
+        }
+
+        writer.flush();
+    }
+
+    private String toJson(OrderEntity orderEntity) throws IOException {
+
+        return objectMapper.writeValueAsString(OrderMapper.toOrderRestModel(orderEntity));
+    }
+
+    private String toCsv(OrderEntity orderEntity) {
+
+        return String.join(",",
+                csvValue(orderEntity.getOrderId()),
+                csvValue(orderEntity.getUserId()),
+                csvValue(orderEntity.getProductId()),
+                String.valueOf(orderEntity.getQuantity()),
+                csvValue(orderEntity.getAddressId()),
+                csvValue(orderEntity.getOrderStatus()),
+                csvValue(orderEntity.getCreatedAt()));
+    }
+
+    private String csvValue(Object value) {
+
+        if (Objects.isNull(value)) return "";
+
+        String text = value.toString();
+
+        if (text.contains(",") || text.contains("\"") || text.contains("\n"))
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+
+        return text;
+    }
+}
@@ -1,14 +1,20 @@
 package com.gui.estore.ordersservice.queries;
 
 import com.gui.estore.ordersservice.exceptions.OrderNotFoundException;
+import com.gui.estore.ordersservice.mappers.OrderMapper;
 import com.gui.estore.ordersservice.model.OrderEntity;
 import com.gui.estore.ordersservice.model.OrderSummary;
+import com.gui.estore.ordersservice.model.UserOrderSummary;
 import com.gui.estore.ordersservice.queries.rest.OrderRestModel;
 import com.gui.estore.ordersservice.repositories.OrderRepository;
+import com.gui.estore.ordersservice.repositories.UserOrderSummaryRepository;
 import org.axonframework.queryhandling.QueryHandler;
-import org.springframework.beans.BeanUtils;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -16,40 +22,89 @@ import java.util.stream.Collectors;
 @Component
 public class OrderQueryHandler {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 500;
+
     OrderRepository orderRepository;
+    OrderSummaryCache orderSummaryCache;
+    UserOrderSummaryRepository userOrderSummaryRepository;
 
-    public OrderQueryHandler(OrderRepository orderRepository) {
+    public OrderQueryHandler(OrderRepository orderRepository, OrderSummaryCache orderSummaryCache,
+                             UserOrderSummaryRepository userOrderSummaryRepository) {
         this.orderRepository = orderRepository;
+        this.orderSummaryCache = orderSummaryCache;
+        this.userOrderSummaryRepository = userOrderSummaryRepository;
     }
 
     @QueryHandler
     public OrderSummary findOrder(FindOrderQuery findOrderQuery) {
 
-        OrderEntity orderEntity = orderRepository.findByOrderId(findOrderQuery.getOrderId()).orElseThrow(
-                        () -> new OrderNotFoundException("No existe ninguna orden con ese id " + findOrderQuery.orderId));
+        return orderSummaryCache.get(findOrderQuery.getOrderId(), orderId -> {
+
+            OrderEntity orderEntity = orderRepository.findByOrderId(orderId).orElseThrow(
+                    () -> new OrderNotFoundException("No existe ninguna orden con ese id " + orderId));
 
-//        OrderRestModel orderRestModel = new OrderRestModel();
-//        BeanUtils.copyProperties(orderEntity, orderRestModel);
-//        return orderRestModel;
+//            OrderRestModel orderRestModel = new OrderRestModel();
+//            BeanUtils.copyProperties(orderEntity, orderRestModel);
+//            return orderRestModel;
 
-        return new OrderSummary(orderEntity.getOrderId(), orderEntity.getOrderStatus(), "");
+            return new OrderSummary(orderEntity.getOrderId(), orderEntity.getOrderStatus(), "");
+        });
     }
 
     @QueryHandler
     public List<OrderRestModel> findOrders(FindOrdersQuery findOrdersQuery) {
 
-        boolean filtered = !Objects.isNull(findOrdersQuery.getUserId());
+        findOrdersQuery.validate();
 
-        List<OrderEntity> storedOrders = orderRepository.findAll();
+        // el filtrado y la paginación se hacen en BD (índice por userId y orderStatus)
+        List<OrderEntity> storedOrders = Objects.isNull(findOrdersQuery.getAfterOrderId())
+                ? orderRepository.findOrders(findOrdersQuery.getUserId(), findOrdersQuery.getOrderStatus(),
+                        PageRequest.of(findOrdersQuery.getPage(), pageSize(findOrdersQuery), sort(findOrdersQuery)))
+                    .getContent()
+                : orderRepository.findOrdersAfter(findOrdersQuery.getUserId(), findOrdersQuery.getOrderStatus(),
+                        findOrdersQuery.getAfterOrderId(), direction(findOrdersQuery), pageSize(findOrdersQuery));
 
-        // si filtered = false, devuelvo todas las ordenes porque filtra por un orderId inexistente
         return storedOrders.stream()
-                .filter(filtered ? orderEntity -> orderEntity.getUserId().equals(findOrdersQuery.getUserId())
-                        : orderEntity -> !Objects.isNull(orderEntity.getOrderId()))
-                .map(orderEntity -> {
-                    OrderRestModel orderRestModel = new OrderRestModel();
-                    BeanUtils.copyProperties(orderEntity, orderRestModel);
-                    return orderRestModel;
-                }).collect(Collectors.toList());
+                .map(OrderMapper::toOrderRestModel)
+                .collect(Collectors.toList());
+    }
+
+    // una lectura por clave de user_order_summaries (UserOrderSummaryEventsHandler), sin contar en la tabla orders
+    // un usuario sin órdenes devuelve los contadores a 0
+    @QueryHandler
+    public UserOrderSummary findUserOrderSummary(FindUserOrderSummaryQuery findUserOrderSummaryQuery) {
+
+        String userId = findUserOrderSummaryQuery.getUserId();
+
+        return userOrderSummaryRepository.findById(userId)
+                .map(userOrderSummary -> new UserOrderSummary(userId,
+                        userOrderSummary.getTotal(),
+                        userOrderSummary.getOnValidation(),
+                        userOrderSummary.getApproved(),
+                        userOrderSummary.getRejected(),
+                        userOrderSummary.getRecentOrderIds().isEmpty()
+                                ? Collections.emptyList()
+                                : Arrays.asList(userOrderSummary.getRecentOrderIds().split(","))))
+                .orElseGet(() -> new UserOrderSummary(userId, 0, 0, 0, 0, Collections.emptyList()));
+    }
+
+    private int pageSize(FindOrdersQuery findOrdersQuery) {
+
+        int size = findOrdersQuery.getSize();
+
+        return size < 1 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    private Sort sort(FindOrdersQuery findOrdersQuery) {
+
+        String sortBy = Objects.isNull(findOrdersQuery.getSortBy()) ? "orderId" : findOrdersQuery.getSortBy();
+
+        // orderId como desempate para que el orden entre páginas sea estable
+        return Sort.by(direction(findOrdersQuery), sortBy).and(Sort.by("orderId"));
+    }
+
+    private Sort.Direction direction(FindOrdersQuery findOrdersQuery) {
+        return Objects.isNull(findOrdersQuery.getDirection()) ? Sort.Direction.ASC : findOrdersQuery.getDirection();
     }
 }
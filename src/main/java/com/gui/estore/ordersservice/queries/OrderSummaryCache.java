@@ -0,0 +1,56 @@
+package com.gui.estore.ordersservice.queries;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.gui.estore.ordersservice.model.OrderStatus;
+import com.gui.estore.ordersservice.model.OrderSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+// caché de FindOrderQuery: la rellena OrderQueryHandler y la actualiza OrderSummaryCacheEventsHandler
+// cada instancia tiene la suya y recibe todos los eventos de órdenes, no solo los de sus segmentos de order-group
+@Component
+public class OrderSummaryCache {
+
+    private final Cache<String, OrderSummary> cache;
+
+    public OrderSummaryCache(@Value("${orders.summary-cache.maximum-size:10000}") long maximumSize,
+                             @Value("${orders.summary-cache.ttl:1m}") Duration ttl,
+                             MeterRegistry meterRegistry) {
+
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        // hits, misses, evictions y tamaño en /actuator/prometheus
+        GuavaCacheMetrics.monitor(meterRegistry, cache, "orders.summary");
+    }
+
+    // si la proyección actualiza la orden mientras se está cargando, Guava descarta el valor leído de BD
+    public OrderSummary get(String orderId, Function<String, OrderSummary> loader) {
+
+        try {
+            return cache.get(orderId, () -> loader.apply(orderId));
+        } catch (UncheckedExecutionException | ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public void put(String orderId, OrderStatus orderStatus) {
+        cache.put(orderId, new OrderSummary(orderId, orderStatus, ""));
+    }
+
+    public void evict(String orderId) {
+        cache.invalidate(orderId);
+    }
+}
@@ -0,0 +1,38 @@
+package com.gui.estore.ordersservice.queries;
+
+import com.gui.estore.ordersservice.core.events.OrderApprovedEvent;
+import com.gui.estore.ordersservice.core.events.OrderCreatedEvent;
+import com.gui.estore.ordersservice.core.events.OrderRejectedEvent;
+import org.axonframework.config.ProcessingGroup;
+import org.axonframework.eventhandling.EventHandler;
+import org.springframework.stereotype.Component;
+
+// mantiene OrderSummaryCache en todas las instancias: order-summary-cache-group es un procesador tracking con el token
+// en memoria (AxonConfig), cada instancia lee todos los eventos y no solo los de los segmentos de order-group que procesa
+// el estado final se pone directamente desde el EVENT: es el mismo que escribe OrderEventsHandler en la proyección,
+// así una lectura de BD anterior al commit de la proyección no deja el estado viejo en la caché
+@Component
+@ProcessingGroup("order-summary-cache-group")
+public class OrderSummaryCacheEventsHandler {
+
+    private final OrderSummaryCache orderSummaryCache;
+
+    public OrderSummaryCacheEventsHandler(OrderSummaryCache orderSummaryCache) {
+        this.orderSummaryCache = orderSummaryCache;
+    }
+
+    @EventHandler
+    public void on(OrderCreatedEvent orderCreatedEvent) {
+        orderSummaryCache.evict(orderCreatedEvent.getOrderId());
+    }
+
+    @EventHandler
+    public void on(OrderApprovedEvent orderApprovedEvent) {
+        orderSummaryCache.put(orderApprovedEvent.getOrderId(), orderApprovedEvent.getOrderStatus());
+    }
+
+    @EventHandler
+    public void on(OrderRejectedEvent orderRejectedEvent) {
+        orderSummaryCache.put(orderRejectedEvent.getOrderId(), orderRejectedEvent.getOrderStatus());
+    }
+}
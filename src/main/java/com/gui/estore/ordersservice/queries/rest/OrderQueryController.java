@@ -1,50 +1,136 @@
 package com.gui.estore.ordersservice.queries.rest;
 
+import com.gui.estore.ordersservice.model.OrderRollups;
+import com.gui.estore.ordersservice.model.OrderStatus;
+import com.gui.estore.ordersservice.model.OrderSummary;
+import com.gui.estore.ordersservice.model.RollupGranularity;
+import com.gui.estore.ordersservice.model.UserOrderSummary;
 import com.gui.estore.ordersservice.queries.FindOrderQuery;
+import com.gui.estore.ordersservice.queries.FindOrderRollupsQuery;
 import com.gui.estore.ordersservice.queries.FindOrdersQuery;
+import com.gui.estore.ordersservice.queries.FindUserOrderSummaryQuery;
+import com.gui.estore.ordersservice.queries.OrderExportFormat;
+import com.gui.estore.ordersservice.queries.OrderExporter;
 import org.axonframework.messaging.responsetypes.ResponseTypes;
 import org.axonframework.queryhandling.QueryGateway;
 import org.springframework.core.env.Environment;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.List;
-import java.util.Objects;
 
 @RestController
 @RequestMapping("/orders")
 public class OrderQueryController {
 
     private final QueryGateway queryGateway;
+    private final OrderExporter orderExporter;
     private final Environment env;
 
-    public OrderQueryController(QueryGateway queryGateway, Environment env) {
+    public OrderQueryController(QueryGateway queryGateway, OrderExporter orderExporter, Environment env) {
         this.queryGateway = queryGateway;
+        this.orderExporter = orderExporter;
         this.env = env;
     }
 
     @GetMapping("getOrder/{id}")
-    public ResponseEntity<OrderRestModel> getOrder(@PathVariable(value = "id") String orderId) {
+    public ResponseEntity<OrderSummary> getOrder(@PathVariable(value = "id") String orderId) {
 
         FindOrderQuery findOrderQuery = FindOrderQuery.builder()
                 .orderId(orderId)
                 .build();
 
-        OrderRestModel order = queryGateway.query(findOrderQuery, OrderRestModel.class).join();
+        // mismo tipo de respuesta que devuelve OrderQueryHandler.findOrder
+        OrderSummary order = queryGateway.query(findOrderQuery, OrderSummary.class).join();
 
         return ResponseEntity.ok(order);
     }
 
-    @GetMapping({"getOrders", "getOrders/{userId}"})
-    public List<OrderRestModel> getOrders(@PathVariable(value = "userId", required = false) String userId) {
+    // contadores por estado y últimas órdenes del usuario, sin listar sus órdenes
+    @GetMapping("summary/{userId}")
+    public UserOrderSummary getUserOrderSummary(@PathVariable(value = "userId") String userId) {
+
+        FindUserOrderSummaryQuery findUserOrderSummaryQuery = FindUserOrderSummaryQuery.builder()
+                .userId(userId)
+                .build();
+
+        return queryGateway.query(findUserOrderSummaryQuery, UserOrderSummary.class).join();
+    }
+
+    // órdenes creadas, aprobadas y rechazadas por minuto/hora/día y motivos de rechazo más frecuentes
+    // ?granularity=HOUR&from=2022-01-01T00:00:00Z&to=2022-01-02T00:00:00Z&top=10
+    // sin from/to: los últimos 60 buckets de la granularidad
+    @GetMapping("analytics")
+    public OrderRollups getOrderRollups(@RequestParam(value = "granularity", defaultValue = "MINUTE") RollupGranularity granularity,
+                                        @RequestParam(value = "from", required = false) Instant from,
+                                        @RequestParam(value = "to", required = false) Instant to,
+                                        @RequestParam(value = "top", defaultValue = "10") int topReasons) {
+
+        Instant rangeTo = to != null ? to : Instant.now();
+        Instant rangeFrom = from != null ? from : rangeTo.minus(granularity.getUnit().getDuration().multipliedBy(60));
+
+        FindOrderRollupsQuery findOrderRollupsQuery = FindOrderRollupsQuery.builder()
+                .granularity(granularity)
+                .from(rangeFrom)
+                .to(rangeTo)
+                .topReasons(topReasons)
+                .build();
 
-        FindOrdersQuery findOrdersQuery = new FindOrdersQuery();
+        // from posterior a to o top negativo -> 400 sin llegar a lanzar la QUERY
+        findOrderRollupsQuery.validate();
 
-        if (!Objects.isNull(userId)) findOrdersQuery = FindOrdersQuery.builder()
+        return queryGateway.query(findOrderRollupsQuery, OrderRollups.class).join();
+    }
+
+    // ?status=APPROVED&page=0&size=20&sortBy=orderId&direction=ASC
+    // para páginas profundas ?after=<último orderId recibido> (keyset, solo con sortBy=orderId)
+    @GetMapping({"getOrders", "getOrders/{userId}"})
+    public List<OrderRestModel> getOrders(@PathVariable(value = "userId", required = false) String userId,
+                                          @RequestParam(value = "status", required = false) OrderStatus orderStatus,
+                                          @RequestParam(value = "page", defaultValue = "0") int page,
+                                          @RequestParam(value = "size", defaultValue = "20") int size,
+                                          @RequestParam(value = "sortBy", defaultValue = "orderId") String sortBy,
+                                          @RequestParam(value = "direction", defaultValue = "ASC") Sort.Direction direction,
+                                          @RequestParam(value = "after", required = false) String afterOrderId) {
+
+        FindOrdersQuery findOrdersQuery = FindOrdersQuery.builder()
                 .userId(userId)
+                .orderStatus(orderStatus)
+                .page(page)
+                .size(size)
+                .sortBy(sortBy)
+                .direction(direction)
+                .afterOrderId(afterOrderId)
                 .build();
 
+        // sortBy no permitido o after con sortBy distinto de orderId -> 400 sin llegar a lanzar la QUERY
+        findOrdersQuery.validate();
+
         // join() porque devuelve un CompletableFuture
         return queryGateway.query(findOrdersQuery, ResponseTypes.multipleInstancesOf(OrderRestModel.class)).join();
     }
+
+    // exportación completa para procesos de back-office: una orden por línea en NDJSON o CSV
+    // ?format=CSV&userId=...&status=APPROVED&from=2022-01-01T00:00:00Z&to=2022-02-01T00:00:00Z
+    @GetMapping("export")
+    public void exportOrders(@RequestParam(value = "format", defaultValue = "NDJSON") OrderExportFormat format,
+                             @RequestParam(value = "userId", required = false) String userId,
+                             @RequestParam(value = "status", required = false) OrderStatus orderStatus,
+                             @RequestParam(value = "from", required = false) Instant createdFrom,
+                             @RequestParam(value = "to", required = false) Instant createdTo,
+                             HttpServletResponse response) throws IOException {
+
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=orders." + format.name().toLowerCase());
+
+        orderExporter.export(format, userId, orderStatus, createdFrom, createdTo, response.getOutputStream());
+    }
 }
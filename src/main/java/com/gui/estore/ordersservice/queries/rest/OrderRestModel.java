@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
+import java.time.Instant;
 
 @Data
 @AllArgsConstructor
@@ -22,4 +23,5 @@ public class OrderRestModel {
     private String addressId;
     @Enumerated(EnumType.STRING)
     private OrderStatus orderStatus;
+    private Instant createdAt;
 }
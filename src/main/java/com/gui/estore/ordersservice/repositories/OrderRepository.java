@@ -2,11 +2,30 @@ package com.gui.estore.ordersservice.repositories;
 
 
 import com.gui.estore.ordersservice.model.OrderEntity;
+import com.gui.estore.ordersservice.model.OrderStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
-public interface OrderRepository extends JpaRepository<OrderEntity, String> {
+// findOrders, findOrdersAfter y streamOrders en OrderRepositoryCustom
+public interface OrderRepository extends JpaRepository<OrderEntity, String>, OrderRepositoryCustom {
 
     Optional<OrderEntity> findByOrderId(String orderId);
+
+    // de los orderIds dados, los que ya están en la proyección
+    @Query("select o.orderId from OrderEntity o where o.orderId in :orderIds")
+    Set<String> findExistingOrderIds(@Param("orderIds") Collection<String> orderIds);
+
+    // actualización en bloque de la proyección, devuelve el número de filas modificadas
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update OrderEntity o set o.orderStatus = :orderStatus where o.orderId in :orderIds")
+    int updateOrderStatus(@Param("orderIds") List<String> orderIds, @Param("orderStatus") OrderStatus orderStatus);
 }
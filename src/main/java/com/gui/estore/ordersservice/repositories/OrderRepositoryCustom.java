@@ -0,0 +1,28 @@
+package com.gui.estore.ordersservice.repositories;
+
+import com.gui.estore.ordersservice.model.OrderEntity;
+import com.gui.estore.ordersservice.model.OrderStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+// consultas con filtros opcionales: el WHERE solo lleva los filtros informados (null = sin filtrar)
+// para que la BD pueda usar idx_orders_user_id_status / idx_orders_status / idx_orders_created_at
+public interface OrderRepositoryCustom {
+
+    // Slice en lugar de Page para no lanzar el count(*) en cada consulta
+    Slice<OrderEntity> findOrders(String userId, OrderStatus orderStatus, Pageable pageable);
+
+    // keyset: continúa a partir del último orderId devuelto, sin recorrer las filas de las páginas anteriores
+    // ordenado por orderId en la dirección indicada
+    List<OrderEntity> findOrdersAfter(String userId, OrderStatus orderStatus, String afterOrderId,
+                                      Sort.Direction direction, int limit);
+
+    // cursor para exportaciones: las filas se leen por bloques según se consumen
+    // hay que consumirlo dentro de una transacción y cerrarlo al terminar
+    Stream<OrderEntity> streamOrders(String userId, OrderStatus orderStatus, Instant createdFrom, Instant createdTo);
+}
@@ -0,0 +1,107 @@
+package com.gui.estore.ordersservice.repositories;
+
+import com.gui.estore.ordersservice.model.OrderEntity;
+import com.gui.estore.ordersservice.model.OrderStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+// implementación de OrderRepositoryCustom (Spring Data la encuentra por el sufijo Impl)
+// las consultas se montan con Criteria para no usar "(:param is null or ...)", que impide usar los índices
+class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+
+    private static final int EXPORT_FETCH_SIZE = 500;
+
+    private final EntityManager entityManager;
+
+    OrderRepositoryCustomImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Slice<OrderEntity> findOrders(String userId, OrderStatus orderStatus, Pageable pageable) {
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<OrderEntity> query = cb.createQuery(OrderEntity.class);
+        Root<OrderEntity> order = query.from(OrderEntity.class);
+
+        query.where(filters(cb, order, userId, orderStatus).toArray(new Predicate[0]))
+                .orderBy(QueryUtils.toOrders(pageable.getSort(), order, cb));
+
+        // una fila de más para saber si hay página siguiente sin contar
+        List<OrderEntity> orders = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+
+        boolean hasNext = orders.size() > pageable.getPageSize();
+
+        return new SliceImpl<>(hasNext ? orders.subList(0, pageable.getPageSize()) : orders, pageable, hasNext);
+    }
+
+    @Override
+    public List<OrderEntity> findOrdersAfter(String userId, OrderStatus orderStatus, String afterOrderId,
+                                             Sort.Direction direction, int limit) {
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<OrderEntity> query = cb.createQuery(OrderEntity.class);
+        Root<OrderEntity> order = query.from(OrderEntity.class);
+
+        List<Predicate> predicates = filters(cb, order, userId, orderStatus);
+        predicates.add(direction.isAscending()
+                ? cb.greaterThan(order.get("orderId"), afterOrderId)
+                : cb.lessThan(order.get("orderId"), afterOrderId));
+
+        query.where(predicates.toArray(new Predicate[0]))
+                .orderBy(direction.isAscending() ? cb.asc(order.get("orderId")) : cb.desc(order.get("orderId")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Stream<OrderEntity> streamOrders(String userId, OrderStatus orderStatus, Instant createdFrom, Instant createdTo) {
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<OrderEntity> query = cb.createQuery(OrderEntity.class);
+        Root<OrderEntity> order = query.from(OrderEntity.class);
+
+        List<Predicate> predicates = filters(cb, order, userId, orderStatus);
+        if (createdFrom != null) predicates.add(cb.greaterThanOrEqualTo(order.get("createdAt"), createdFrom));
+        if (createdTo != null) predicates.add(cb.lessThan(order.get("createdAt"), createdTo));
+
+        query.where(predicates.toArray(new Predicate[0]));
+
+        return entityManager.createQuery(query)
+                .setHint(HINT_FETCH_SIZE, EXPORT_FETCH_SIZE)
+                .setHint(HINT_READONLY, true)
+                .getResultStream();
+    }
+
+    // solo los filtros informados
+    private List<Predicate> filters(CriteriaBuilder cb, Root<OrderEntity> order, String userId, OrderStatus orderStatus) {
+
+        List<Predicate> predicates = new ArrayList<>();
+
+        if (userId != null) predicates.add(cb.equal(order.get("userId"), userId));
+        if (orderStatus != null) predicates.add(cb.equal(order.get("orderStatus"), orderStatus));
+
+        return predicates;
+    }
+}
@@ -0,0 +1,7 @@
+package com.gui.estore.ordersservice.repositories;
+
+import com.gui.estore.ordersservice.model.UserOrderLookupEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface UserOrderLookupRepository extends JpaRepository<UserOrderLookupEntity, String> {
+}
@@ -0,0 +1,7 @@
+package com.gui.estore.ordersservice.repositories;
+
+import com.gui.estore.ordersservice.model.UserOrderSummaryEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface UserOrderSummaryRepository extends JpaRepository<UserOrderSummaryEntity, String> {
+}
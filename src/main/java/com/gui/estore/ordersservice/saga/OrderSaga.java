@@ -2,71 +2,101 @@ package com.gui.estore.ordersservice.saga;
 
 import com.gui.estore.core.commands.*;
 import com.gui.estore.core.events.*;
-import com.gui.estore.core.model.User;
-import com.gui.estore.core.queries.FetchUserPaymentDetailsQuery;
 import com.gui.estore.ordersservice.commands.ApproveOrderCommand;
 import com.gui.estore.ordersservice.commands.RejectOrderCommand;
 import com.gui.estore.ordersservice.core.events.OrderApprovedEvent;
 import com.gui.estore.ordersservice.core.events.OrderCreatedEvent;
 import com.gui.estore.ordersservice.core.events.OrderRejectedEvent;
+import com.gui.estore.ordersservice.exceptions.PaymentException;
 import com.gui.estore.ordersservice.model.OrderSummary;
 import com.gui.estore.ordersservice.queries.FindOrderQuery;
+import com.gui.estore.ordersservice.tracing.TraceMetaData;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.axonframework.commandhandling.CommandCallback;
 import org.axonframework.commandhandling.CommandMessage;
 import org.axonframework.commandhandling.CommandResultMessage;
+import org.axonframework.commandhandling.GenericCommandMessage;
 import org.axonframework.commandhandling.gateway.CommandGateway;
 import org.axonframework.deadline.DeadlineManager;
 import org.axonframework.deadline.annotation.DeadlineHandler;
-import org.axonframework.messaging.responsetypes.ResponseTypes;
+import org.axonframework.eventhandling.Timestamp;
+import org.axonframework.messaging.MetaData;
+import org.axonframework.messaging.annotation.MetaDataValue;
 import org.axonframework.modelling.saga.EndSaga;
 import org.axonframework.modelling.saga.SagaEventHandler;
 import org.axonframework.modelling.saga.StartSaga;
-import org.axonframework.queryhandling.QueryGateway;
 import org.axonframework.queryhandling.QueryUpdateEmitter;
 import org.axonframework.spring.stereotype.Saga;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
-@Saga
+// saga store con caché y métricas (SagaConfig)
+@Saga(sagaStore = "orderSagaStore")
 public class OrderSaga {
 
     // saga es serialized, transient es para que no se serialicen los datos
     @Autowired
     private transient CommandGateway commandGateway;
 
-    @Autowired
-    private transient QueryGateway queryGateway;
-
     @Autowired
     private transient DeadlineManager deadlineManager;
 
     @Autowired
     private transient QueryUpdateEmitter queryUpdateEmitter;
 
+    @Autowired
+    private transient PaymentDetailsPrefetcher paymentDetailsPrefetcher;
+
+    @Autowired
+    private transient MeterRegistry meterRegistry;
+
     private final String PAYMENT_PROCESSING_TIMEOUT_DEADLINE = "payment-processing-deadline";
     private final String SHIPMENT_PROCESSING_TIMEOUT_DEADLINE = "shipment-processing-deadline";
 
+    // tiempo máximo de espera de los COMMAND enviados desde SAGA
+    private static final long COMMAND_TIMEOUT_SECONDS = 10;
+
     private String paymentScheduleId;
     private String shipmentScheduleId;
-    private String userEmail;
 
     private String productId;
     private int productQuantity;
     private String userId;
 
+    // timestamp del OrderCreatedEvent en millis (tipo primitivo para no depender del serializer) para medir la latencia total
+    private long orderCreatedAtMillis;
+
+    // traceId de la orden (MetaData de OrderCreatedEvent): los COMMAND enviados dentro del handler lo heredan solos,
+    // los que se envían desde callbacks asíncronos (fuera de la unit of work) lo necesitan explícito, ver traced()
+    private String traceId;
+
+    // los callbacks asíncronos (whenComplete, CommandCallback) corren en hilos del gateway o del timeout, fuera de la
+    // unit of work: solo envían COMMANDs y nunca modifican el estado de SAGA (no se persistiría y, con la caché de
+    // SagaConfig, competiría con el hilo que gestiona el siguiente EVENT). Los Deadlines se cancelan en el
+    // @SagaEventHandler del EVENT que resulta de ese COMMAND
+
     // abrimos método HANDLE pro cada EVENT recibido
     // en cuanto un OrderCreatedEvent sea creado
     // associationProperty = "orderId" asocia los eventos a la instancia de SAGA
     @StartSaga
     @SagaEventHandler(associationProperty = "orderId")
-    public void handle(OrderCreatedEvent orderCreatedEvent) {
+    public void handle(OrderCreatedEvent orderCreatedEvent, @Timestamp Instant timestamp,
+                       @MetaDataValue(TraceMetaData.TRACE_ID) String traceId) {
+
+        orderCreatedAtMillis = timestamp.toEpochMilli();
+        this.traceId = traceId;
 
         ReserveProductCommand reserveProductCommand = ReserveProductCommand.builder()
                 .orderId(orderCreatedEvent.getOrderId())
@@ -78,6 +108,8 @@ public class OrderSaga {
         log.info("Orden creada OK en SAGA. Order: " + reserveProductCommand.getOrderId() +
                 " and productId: " + reserveProductCommand.getProductId());
 
+        Timer.Sample reserveProductSample = Timer.start(meterRegistry);
+
         // CALLBACK nos informará cuando el COMMAND haya sido procesado
         // mandamos COMMAND al ProductAggregate
         // se puede hacer así o como el resto de compensations con try catch
@@ -86,16 +118,24 @@ public class OrderSaga {
             @Override
             public void onResult(CommandMessage<? extends ReserveProductCommand> commandMessage,
                                  CommandResultMessage<? extends Object> commandResultMessage) {
+
+                reserveProductSample.stop(stepTimer("reserve-product", !commandResultMessage.isExceptional()));
+
                 if (commandResultMessage.isExceptional()) {
+                    countCompensation("reservation-failed");
+
                     // Start a compensating transaction si hay EXCEPTION
                     RejectOrderCommand rejectOrderCommand = RejectOrderCommand.builder()
                             .orderId(orderCreatedEvent.getOrderId())
                             .reason(commandResultMessage.exceptionResult().getMessage()).build();
 
-                    commandGateway.send(rejectOrderCommand);
+                    commandGateway.send(traced(rejectOrderCommand));
                 }
             }
         });
+
+        // los datos de pago no dependen de la reserva: se piden ya y se recogen en handle(ProductReservedEvent)
+        paymentDetailsPrefetcher.prefetch(orderCreatedEvent.getOrderId(), orderCreatedEvent.getUserId());
     }
 
     @SagaEventHandler(associationProperty = "orderId")
@@ -109,64 +149,54 @@ public class OrderSaga {
         log.info("ProductReservedEvent gestionado OK en SAGA. Orden: " + productReservedEvent.getOrderId() + " - Producto: "
                 + productReservedEvent.getProductId());
 
-        FetchUserPaymentDetailsQuery fetchUserPaymentDetailsQuery =
-                FetchUserPaymentDetailsQuery.builder()
-                        .userId(productReservedEvent.getUserId())
-                        .build();
-
-        User userPaymentDetails = null;
-
-        try {
-            // QUERY a GATEWAY y llega a UserEventsHandler
-            userPaymentDetails = queryGateway.query(fetchUserPaymentDetailsQuery, ResponseTypes.instanceOf(User.class)).join();
-        } catch (Exception e) {
-            // compensation
-            cancelProductReservation(productReservedEvent, e.getMessage());
-            return;
-        }
-
-        if (Objects.isNull(userPaymentDetails)) {
-            cancelProductReservation(productReservedEvent, "Ha habido un error al recuperar los métodos de pago del usuario" + userPaymentDetails.getFirstName());
-            log.error("Ha habido un error al recuperar los métodos de pago del usuario" + userPaymentDetails.getFirstName());
-            return;
-        }
-
-        userEmail = userPaymentDetails.getEmail();
-
-        // userPaymentDetails OK -> mandamos a PaymentService AGGREGATE
-        log.info("Información del pago del usuario " + userPaymentDetails.getFirstName() + " recuperada OK");
-
         // 2 mins, pero normalmente algo como una confirmación de usuario pueden ser varios días
         // productReservedEvent payload opcional
+        // se programa antes de lanzar la QUERY: el estado de SAGA solo se persiste al acabar este handler,
+        // lo que se asigne dentro de los callbacks asíncronos se perdería
         paymentScheduleId = deadlineManager.schedule(Duration.of(2, ChronoUnit.MINUTES),
                 PAYMENT_PROCESSING_TIMEOUT_DEADLINE, productReservedEvent);
 
         // para pruebas: ejecutaba siempre deadlineManager
 //        if (true) return;
 
-        ProcessPaymentCommand processPaymentCommand = ProcessPaymentCommand.builder()
-                .orderId(productReservedEvent.getOrderId())
-                .paymentId(UUID.randomUUID().toString())
-                .paymentDetails(userPaymentDetails.getPaymentDetails())
-                .build();
-
-        String result = null;
-
-        try {
-            // acepta time unit de espera de respuesta
-            // bloquea ejecución ese tiempo, si no llega devuelve null
-            result = commandGateway.sendAndWait(processPaymentCommand, 10, TimeUnit.SECONDS);
-        } catch (Exception e) {
-            cancelProductReservation(productReservedEvent, e.getMessage());
-            log.error(e.getMessage() + "Ha habido un error al ejecutar el pago del usuario" + userPaymentDetails.getFirstName());
-            return;
-        }
-
-        if (Objects.isNull(result)) {
-            cancelProductReservation(productReservedEvent, "Ha habido un error al ejecutar el pago del usuario" + userPaymentDetails.getFirstName());
-            log.error("Ha habido un error al ejecutar el pago del usuario" + userPaymentDetails.getFirstName());
-            return;
-        }
+        // QUERY a GATEWAY y llega a UserEventsHandler, normalmente lanzada ya al crear la orden
+        // sin join(): el hilo de SAGA queda libre y el pipeline sigue en los callbacks
+        timed("fetch-payment-details", paymentDetailsPrefetcher.take(productReservedEvent.getOrderId(), productReservedEvent.getUserId()))
+                .thenCompose(userPaymentDetails -> {
+
+                    if (Objects.isNull(userPaymentDetails)) {
+                        throw new PaymentException("Ha habido un error al recuperar los métodos de pago del usuario "
+                                + productReservedEvent.getUserId());
+                    }
+
+                    // userPaymentDetails OK -> mandamos a PaymentService AGGREGATE
+                    log.info("Información del pago del usuario " + userPaymentDetails.getFirstName() + " recuperada OK");
+
+                    ProcessPaymentCommand processPaymentCommand = ProcessPaymentCommand.builder()
+                            .orderId(productReservedEvent.getOrderId())
+                            .paymentId(UUID.randomUUID().toString())
+                            .paymentDetails(userPaymentDetails.getPaymentDetails())
+                            .build();
+
+                    return timed("process-payment", commandGateway.<String>send(traced(processPaymentCommand)));
+                })
+                // mismo límite de espera que tenía sendAndWait, pero sin bloquear ningún hilo
+                .orTimeout(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .whenComplete((result, throwable) -> {
+                    if (throwable != null) {
+                        // compensation
+                        Throwable cause = rootCause(throwable);
+                        String reason = cause.getMessage();
+                        countCompensation(cause instanceof TimeoutException ? "payment-timeout" : "payment-failed");
+                        log.error("Ha habido un error al ejecutar el pago de la orden {}: {}", productReservedEvent.getOrderId(), reason);
+                        sendCancelProductReservation(productReservedEvent, reason);
+                    } else if (Objects.isNull(result)) {
+                        countCompensation("payment-failed");
+                        log.error("Ha habido un error al ejecutar el pago de la orden {}", productReservedEvent.getOrderId());
+                        sendCancelProductReservation(productReservedEvent, "Ha habido un error al ejecutar el pago del usuario "
+                                + productReservedEvent.getUserId());
+                    }
+                });
     }
 
     @SagaEventHandler(associationProperty = "orderId")
@@ -183,25 +213,23 @@ public class OrderSaga {
                 .shipmentId(UUID.randomUUID().toString())
                 .build();
 
-        String result = null;
-
-        try {
-            // enviamos el COMMAND al COMMAND GATEWAY que llegará al AGGREGATE de SHIPMENT
-            result = commandGateway.sendAndWait(shipOrderCommand, 10, TimeUnit.SECONDS);
-
-        } catch (Exception e) {
-            // compensation transaction
-            log.error("Ha habido un error con el ENVÍO de la orden {}", paymentProcessedEvent.getOrderId());
+        // enviamos el COMMAND al COMMAND GATEWAY que llegará al AGGREGATE de SHIPMENT
+        timed("ship-order", commandGateway.send(shipOrderCommand))
+                .orTimeout(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .whenComplete((result, throwable) -> {
+                    if (throwable == null) return;
 
-            CancelPaymentCommand cancelPaymentCommand = CancelPaymentCommand.builder()
-                    .paymentId(paymentProcessedEvent.getPaymentId())
-                    .orderId(paymentProcessedEvent.getOrderId())
-                    .reason(e.getMessage()).build();
+                    // compensation transaction
+                    countCompensation("shipment-failed");
+                    log.error("Ha habido un error con el ENVÍO de la orden {}", paymentProcessedEvent.getOrderId());
 
-            commandGateway.send(cancelPaymentCommand);
+                    CancelPaymentCommand cancelPaymentCommand = CancelPaymentCommand.builder()
+                            .paymentId(paymentProcessedEvent.getPaymentId())
+                            .orderId(paymentProcessedEvent.getOrderId())
+                            .reason(rootCause(throwable).getMessage()).build();
 
-            return;
-        }
+                    commandGateway.send(traced(cancelPaymentCommand));
+                });
     }
 
     @SagaEventHandler(associationProperty = "orderId")
@@ -210,30 +238,33 @@ public class OrderSaga {
         // processed user shipment
         log.info("Envío completado OK. Orden " + orderShippedEvent.getOrderId());
 
-        SendNotificationCommand sendNotificationCommand = SendNotificationCommand.builder()
-                .orderId(orderShippedEvent.getOrderId())
-                .noticeId(UUID.randomUUID().toString())
-                .email(userEmail)
-                .build();
-
-        String result = null;
-
-        try {
-
-            // enviamos el COMMAND al COMMAND GATEWAY que llegará al AGGREGATE de NOTIFICATION
-            result = commandGateway.sendAndWait(sendNotificationCommand, 10, TimeUnit.SECONDS);
-
-        } catch (Exception e) {
-            // no es necesaria compensación
-            log.error("Ha habido un error al enviar la notificación vía email");
-            // OK procesado reserva, pago y envío -> cancelamos el Deadline
-            cancelDeadline();
-            log.info("Orden {} cerrada correctamente",sendNotificationCommand.getOrderId());
-            // creamos nuevo orderAcceptCommand
-            ApproveOrderCommand approveOrderCommand = new ApproveOrderCommand(sendNotificationCommand.getOrderId());
-
-            commandGateway.send(approveOrderCommand);
-        }
+        // el email sale de los datos de pago que recogió el paso de pago (PaymentDetailsPrefetcher), sin otra QUERY:
+        // llegan en un callback y no forman parte del estado persistido de SAGA
+        paymentDetailsPrefetcher.takePaid(orderShippedEvent.getOrderId(), userId)
+                .thenCompose(userPaymentDetails -> {
+
+                    SendNotificationCommand sendNotificationCommand = SendNotificationCommand.builder()
+                            .orderId(orderShippedEvent.getOrderId())
+                            .noticeId(UUID.randomUUID().toString())
+                            .email(userPaymentDetails.getEmail())
+                            .build();
+
+                    // enviamos el COMMAND al COMMAND GATEWAY que llegará al AGGREGATE de NOTIFICATION
+                    return timed("send-notification", commandGateway.send(traced(sendNotificationCommand)));
+                })
+                .orTimeout(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .whenComplete((result, throwable) -> {
+                    if (throwable == null) return;
+
+                    // no es necesaria compensación
+                    log.error("Ha habido un error al enviar la notificación vía email");
+                    // OK procesado reserva, pago y envío -> el Deadline se cancela en handle(OrderApprovedEvent)
+                    log.info("Orden {} cerrada correctamente", orderShippedEvent.getOrderId());
+                    // creamos nuevo orderAcceptCommand
+                    ApproveOrderCommand approveOrderCommand = new ApproveOrderCommand(orderShippedEvent.getOrderId());
+
+                    commandGateway.send(traced(approveOrderCommand));
+                });
     }
 
     @SagaEventHandler(associationProperty = "orderId")
@@ -255,17 +286,18 @@ public class OrderSaga {
 
     @EndSaga
     @SagaEventHandler(associationProperty = "orderId")
-    public void handle(OrderApprovedEvent orderApprovedEvent) {
+    public void handle(OrderApprovedEvent orderApprovedEvent, @Timestamp Instant timestamp) {
+
+        // también cubre la aprobación que llega desde el callback de la notificación fallida
+        cancelDeadline();
+
+        recordCompletion("approved", timestamp);
 
         log.info("Orden completada OK en SAGA. Orden: " + orderApprovedEvent.getOrderId());
 
         // happy path cuando tenemos OrderApprovedEvent
         // comunica con SUBSCRIPTION QUERY posibles cambios, errores o ya no hay updates
-        // parámetros: query class, predicado sin filtrar, updated object (OrderSummary que devuelve OrdersCommandController)
-        queryUpdateEmitter.emit(
-                FindOrderQuery.class,
-                query -> true,
-                new OrderSummary(orderApprovedEvent.getOrderId(), orderApprovedEvent.getOrderStatus(), "ORDER APPROVED"));
+        emitOrderSummary(new OrderSummary(orderApprovedEvent.getOrderId(), orderApprovedEvent.getOrderStatus(), "ORDER APPROVED"));
     }
 
     // ---------  COMPENSATIONS  ---------
@@ -276,6 +308,9 @@ public class OrderSaga {
 
         log.info("Se cancela la orden {} por fallo en el pago", productReservationCancelledEvent.getOrderId());
 
+        // reserva cancelada (desde un callback, el Deadline de pago o PaymentCancelledEvent) -> cancelamos el Deadline
+        cancelDeadline();
+
         RejectOrderCommand rejectOrderCommand = RejectOrderCommand.builder()
                 .orderId(productReservationCancelledEvent.getOrderId())
                 .reason(productReservationCancelledEvent.getReason())
@@ -297,21 +332,23 @@ public class OrderSaga {
                 .userId(userId)
                 .build();
 
-        cancelProductReservation(productReservedEvent, "No se ha podido procesar el envío");
+        sendCancelProductReservation(productReservedEvent, "No se ha podido procesar el envío");
     }
 
     @EndSaga
     @SagaEventHandler(associationProperty = "orderId")
-    public void handle(OrderRejectedEvent orderRejectedEvent) {
+    public void handle(OrderRejectedEvent orderRejectedEvent, @Timestamp Instant timestamp) {
+
+        // el rechazo por fallo de reserva no pasa por ProductReservationCancelledEvent
+        cancelDeadline();
+
+        recordCompletion("rejected", timestamp);
 
         log.info("ORDER REJECTED EVENT handled in SAGA: OrderId " + orderRejectedEvent.getOrderId()
                 + " - REASON: " + orderRejectedEvent.getReason());
 
         // cuando tenemos OrderRejectedEvent también actualizamos la suscripción
-        queryUpdateEmitter.emit(
-                FindOrderQuery.class,
-                query -> true,
-                new OrderSummary(orderRejectedEvent.getOrderId(), orderRejectedEvent.getOrderStatus(), orderRejectedEvent.getReason()));
+        emitOrderSummary(new OrderSummary(orderRejectedEvent.getOrderId(), orderRejectedEvent.getOrderStatus(), orderRejectedEvent.getReason()));
     }
 
     // método con el mismo deadlineName que el nuestro para que AXON lo ejecute en el caso de que haga falta
@@ -321,15 +358,63 @@ public class OrderSaga {
 
         log.info("Payment processing deadline took place. Sending a compensation command to cancel de product reservation.");
 
+        countCompensation("payment-deadline");
+
+        // ya ha saltado, no hay que cancelarlo (el handler de Deadline sí persiste el estado de SAGA)
+        paymentScheduleId = null;
+
         // nuestro método general de rollback en la SAGA y el payload opcional que habíamos mandado
-        cancelProductReservation(productReservedEvent, "Payment processing timeout");
+        sendCancelProductReservation(productReservedEvent, "Payment processing timeout");
     }
 
-    // método para hacer COMPENSATION de product reservation en varios puntos de SAGA
-    private void cancelProductReservation(ProductReservedEvent productReservedEvent, String reason) {
+    // latencia de extremo a extremo de la orden: desde OrderCreatedEvent hasta su aprobación o rechazo
+    private void recordCompletion(String outcome, Instant completedAt) {
 
-        // si se cancela la reserva cancelamos el Deadline
-        cancelDeadline();
+        if (orderCreatedAtMillis == 0) return;
+
+        Timer.builder("orders.saga.completion")
+                .description("Tiempo desde la creación de la orden hasta que se aprueba o rechaza")
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry)
+                .record(completedAt.toEpochMilli() - orderCreatedAtMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // duración de cada paso asíncrono de SAGA, desde que se envía el COMMAND/QUERY hasta su respuesta
+    private <T> CompletableFuture<T> timed(String step, CompletableFuture<T> future) {
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        return future.whenComplete((result, throwable) -> sample.stop(stepTimer(step, throwable == null)));
+    }
+
+    private Timer stepTimer(String step, boolean success) {
+        return Timer.builder("orders.saga.step")
+                .description("Duración de cada paso de SAGA")
+                .tag("step", step)
+                .tag("outcome", success ? "success" : "failure")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    // reason es un código fijo (no el mensaje de la excepción) para no disparar la cardinalidad de la métrica
+    private void countCompensation(String reason) {
+        meterRegistry.counter("orders.saga.compensation", "reason", reason).increment();
+    }
+
+    // parámetros: query class, predicado, updated object (OrderSummary que devuelve OrdersCommandController)
+    // el predicado filtra por orderId: cada suscripción recibe solo el update de su orden
+    private void emitOrderSummary(OrderSummary orderSummary) {
+
+        queryUpdateEmitter.emit(
+                FindOrderQuery.class,
+                query -> orderSummary.getOrderId().equals(query.getOrderId()),
+                orderSummary);
+    }
+
+    // método para hacer COMPENSATION de product reservation en varios puntos de SAGA
+    // solo envía el COMMAND: el Deadline se cancela en handle(ProductReservationCancelledEvent)
+    private void sendCancelProductReservation(ProductReservedEvent productReservedEvent, String reason) {
 
         CancelProductReservationCommand cancelProductReservationCommand = CancelProductReservationCommand.builder()
                 .orderId(productReservedEvent.getOrderId())
@@ -339,21 +424,41 @@ public class OrderSaga {
                 .reason(reason)
                 .build();
 
-        commandGateway.send(cancelProductReservationCommand);
+        // se puede llamar desde callbacks asíncronos
+        commandGateway.send(traced(cancelProductReservationCommand));
+    }
+
+    // COMMAND con el traceId de la orden en el MetaData
+    private Object traced(Object command) {
+
+        if (traceId == null) return command;
+
+        return GenericCommandMessage.asCommandMessage(command)
+                .andMetaData(MetaData.with(TraceMetaData.TRACE_ID, traceId));
+    }
+
+    // los CompletableFuture encadenados envuelven la excepción original en CompletionException
+    private static Throwable rootCause(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause()
+                : throwable;
     }
 
     // método para cancelar el Deadline usándolo en varios puntos de SAGA
+    // modifica el estado de SAGA: solo se llama desde @SagaEventHandler, nunca desde callbacks asíncronos
     private void cancelDeadline() {
 
         // si se ha procesado el pago, se cancela el DeadLineManager porque el proceso ha ido ok
         if (paymentScheduleId != null) {
             deadlineManager.cancelSchedule(PAYMENT_PROCESSING_TIMEOUT_DEADLINE, paymentScheduleId);
+            meterRegistry.counter("orders.deadline.cancelled", "deadline", PAYMENT_PROCESSING_TIMEOUT_DEADLINE).increment();
             paymentScheduleId = null;
         }
 
         // si se ha procesado el envío, se cancela el DeadLineManager porque el proceso ha ido ok
         if (shipmentScheduleId != null) {
             deadlineManager.cancelSchedule(SHIPMENT_PROCESSING_TIMEOUT_DEADLINE, shipmentScheduleId);
+            meterRegistry.counter("orders.deadline.cancelled", "deadline", SHIPMENT_PROCESSING_TIMEOUT_DEADLINE).increment();
             shipmentScheduleId = null;
         }
     }
@@ -0,0 +1,71 @@
+package com.gui.estore.ordersservice.saga;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.gui.estore.core.model.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+// lanza FetchUserPaymentDetailsQuery en cuanto se crea la orden, en paralelo con la reserva de producto
+// cuando llega ProductReservedEvent el paso de pago recoge la respuesta ya recibida (o en vuelo) en lugar de esperar otra ida y vuelta
+// la respuesta se guarda hasta el paso de envío, que la usa para el email de la notificación
+// vive fuera de SAGA porque el CompletableFuture no se puede serializar con su estado
+@Component
+public class PaymentDetailsPrefetcher {
+
+    private final UserPaymentDetailsCache userPaymentDetailsCache;
+    // orderId -> QUERY en vuelo o ya resuelta; se descarta si la reserva de producto no llega a tiempo
+    private final Cache<String, CompletableFuture<User>> prefetched;
+    // orderId -> datos de pago que usó el paso de pago; se descartan si el envío no llega a tiempo
+    private final Cache<String, User> paid;
+
+    public PaymentDetailsPrefetcher(UserPaymentDetailsCache userPaymentDetailsCache,
+                                    @Value("${orders.payment-prefetch.maximum-size:10000}") long maximumSize,
+                                    @Value("${orders.payment-prefetch.ttl:2m}") Duration ttl,
+                                    @Value("${orders.payment-prefetch.shipment-ttl:10m}") Duration shipmentTtl) {
+        this.userPaymentDetailsCache = userPaymentDetailsCache;
+        this.prefetched = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.paid = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(shipmentTtl)
+                .build();
+    }
+
+    public void prefetch(String orderId, String userId) {
+        prefetched.put(orderId, fetch(userId));
+    }
+
+    // si la orden se creó en otra instancia, caducó o el prefetch falló, se lanza la QUERY en ese momento
+    // la respuesta queda guardada antes de que el paso de pago siga con ella
+    public CompletableFuture<User> take(String orderId, String userId) {
+
+        CompletableFuture<User> userPaymentDetails = prefetched.asMap().remove(orderId);
+
+        if (userPaymentDetails == null || userPaymentDetails.isCompletedExceptionally()) userPaymentDetails = fetch(userId);
+
+        return userPaymentDetails.whenComplete((user, throwable) -> {
+            if (user != null) paid.put(orderId, user);
+        });
+    }
+
+    // paso de envío: los datos del paso de pago sin otra QUERY; si el pago se hizo en otra instancia o caducaron,
+    // se vuelven a pedir
+    public CompletableFuture<User> takePaid(String orderId, String userId) {
+
+        User user = paid.asMap().remove(orderId);
+
+        if (user == null) return fetch(userId);
+
+        return CompletableFuture.completedFuture(user);
+    }
+
+    private CompletableFuture<User> fetch(String userId) {
+        return userPaymentDetailsCache.get(userId);
+    }
+}
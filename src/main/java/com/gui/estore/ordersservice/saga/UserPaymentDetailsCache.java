@@ -0,0 +1,104 @@
+package com.gui.estore.ordersservice.saga;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.gui.estore.core.model.User;
+import com.gui.estore.core.queries.FetchUserPaymentDetailsQuery;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.axonframework.messaging.responsetypes.ResponseTypes;
+import org.axonframework.queryhandling.QueryGateway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// caché corta por userId de FetchUserPaymentDetailsQuery para ráfagas de órdenes del mismo usuario
+// opcional (orders.payment-details-cache.enabled): guarda datos de pago en memoria durante el TTL,
+// o hasta invalidate(userId), para el handler del EVENT de cambio de datos de pago
+// single-flight: varias órdenes del mismo usuario a la vez comparten una única QUERY en vuelo
+@Component
+public class UserPaymentDetailsCache {
+
+    private final QueryGateway queryGateway;
+    private final boolean enabled;
+    private final Cache<String, User> cache;
+    private final ConcurrentMap<String, CompletableFuture<User>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalescedQueries;
+
+    public UserPaymentDetailsCache(QueryGateway queryGateway,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${orders.payment-details-cache.enabled:false}") boolean enabled,
+                                   @Value("${orders.payment-details-cache.maximum-size:1000}") long maximumSize,
+                                   @Value("${orders.payment-details-cache.ttl:30s}") Duration ttl) {
+        this.queryGateway = queryGateway;
+        this.enabled = enabled;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        GuavaCacheMetrics.monitor(meterRegistry, cache, "orders.payment.details");
+        this.coalescedQueries = Counter.builder("orders.payment.details.coalesced")
+                .description("Peticiones que reutilizan una FetchUserPaymentDetailsQuery ya en vuelo")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<User> get(String userId) {
+
+        if (!enabled) return query(userId);
+
+        User cached = cache.getIfPresent(userId);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+
+        CompletableFuture<User> userPaymentDetails = new CompletableFuture<>();
+        CompletableFuture<User> existing = inFlight.putIfAbsent(userId, userPaymentDetails);
+
+        if (existing != null) {
+            coalescedQueries.increment();
+            return existing;
+        }
+
+        CompletableFuture<User> query;
+        try {
+            query = query(userId);
+        } catch (RuntimeException e) {
+            // si la QUERY falla al enviarse, la entrada en vuelo no puede quedarse colgada para ese usuario
+            inFlight.remove(userId, userPaymentDetails);
+            userPaymentDetails.completeExceptionally(e);
+            return userPaymentDetails;
+        }
+
+        query.whenComplete((user, throwable) -> {
+            // si se ha invalidado mientras estaba en vuelo la respuesta puede ser de antes del cambio: no se guarda
+            boolean current = inFlight.remove(userId, userPaymentDetails);
+            if (current && throwable == null && user != null) cache.put(userId, user);
+
+            if (throwable != null) userPaymentDetails.completeExceptionally(throwable);
+            else userPaymentDetails.complete(user);
+        });
+
+        return userPaymentDetails;
+    }
+
+    // datos de pago cambiados: la siguiente orden del usuario lanza una QUERY nueva, aunque haya una en vuelo
+    public void invalidate(String userId) {
+        inFlight.remove(userId);
+        cache.invalidate(userId);
+    }
+
+    private CompletableFuture<User> query(String userId) {
+
+        FetchUserPaymentDetailsQuery fetchUserPaymentDetailsQuery =
+                FetchUserPaymentDetailsQuery.builder()
+                        .userId(userId)
+                        .build();
+
+        return queryGateway.query(fetchUserPaymentDetailsQuery, ResponseTypes.instanceOf(User.class));
+    }
+}
@@ -0,0 +1,21 @@
+package com.gui.estore.ordersservice.tracing;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+// un paso de la traza: envío (dispatch) o ejecución (handle) de un COMMAND/EVENT en este servicio
+@Value
+public class OrderSpan {
+
+    String traceId;
+    // tipo del payload, p.ej. ReserveProductCommand
+    String name;
+    // dispatch o handle
+    String kind;
+    // command-bus, command-gateway o el processing group del handler
+    String component;
+    Instant start;
+    long durationMillis;
+    boolean success;
+}
@@ -0,0 +1,16 @@
+package com.gui.estore.ordersservice.tracing;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class OrderTimeline {
+
+    String traceId;
+    long totalMillis;
+    List<OrderSpan> spans;
+    List<OrderTraceStep> steps;
+    // paso más lento de la orden (null si solo hay un span)
+    OrderTraceStep slowestStep;
+}
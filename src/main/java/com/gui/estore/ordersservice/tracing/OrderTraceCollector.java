@@ -0,0 +1,87 @@
+package com.gui.estore.ordersservice.tracing;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// colector de spans en memoria, por instancia: guarda las trazas recientes acotadas en número, tamaño y tiempo
+// los spans llevan el traceId de Axon, se podrían exportar tal cual a un backend de trazas (OpenTelemetry, Zipkin...)
+@Component
+public class OrderTraceCollector {
+
+    private final Cache<String, Trace> traces;
+    private final int maxSpansPerTrace;
+
+    public OrderTraceCollector(@Value("${orders.tracing.maximum-traces:10000}") long maximumTraces,
+                               @Value("${orders.tracing.ttl:30m}") Duration ttl,
+                               @Value("${orders.tracing.max-spans-per-trace:200}") int maxSpansPerTrace) {
+        this.traces = CacheBuilder.newBuilder()
+                .maximumSize(maximumTraces)
+                .expireAfterWrite(ttl)
+                .build();
+        this.maxSpansPerTrace = maxSpansPerTrace;
+    }
+
+    public void record(OrderSpan orderSpan) {
+        traces.asMap()
+                .computeIfAbsent(orderSpan.getTraceId(), traceId -> new Trace())
+                .add(orderSpan, maxSpansPerTrace);
+    }
+
+    // spans ordenados por inicio y pasos entre spans consecutivos con el más lento marcado
+    public Optional<OrderTimeline> timeline(String traceId) {
+
+        Trace trace = traces.getIfPresent(traceId);
+        if (trace == null) return Optional.empty();
+
+        List<OrderSpan> spans = trace.spans.stream()
+                .sorted(Comparator.comparing(OrderSpan::getStart))
+                .collect(Collectors.toList());
+
+        List<OrderTraceStep> steps = new ArrayList<>();
+        for (int i = 1; i < spans.size(); i++) {
+            OrderSpan previous = spans.get(i - 1);
+            OrderSpan current = spans.get(i);
+            steps.add(new OrderTraceStep(label(previous), label(current),
+                    Duration.between(previous.getStart(), current.getStart()).toMillis()));
+        }
+
+        OrderTraceStep slowestStep = steps.stream()
+                .max(Comparator.comparingLong(OrderTraceStep::getDurationMillis))
+                .orElse(null);
+
+        OrderSpan first = spans.get(0);
+        long totalMillis = spans.stream()
+                .mapToLong(span -> Duration.between(first.getStart(), span.getStart()).toMillis() + span.getDurationMillis())
+                .max()
+                .orElse(0);
+
+        return Optional.of(new OrderTimeline(traceId, totalMillis, spans, steps, slowestStep));
+    }
+
+    private static String label(OrderSpan orderSpan) {
+        return orderSpan.getKind() + " " + orderSpan.getName() + " (" + orderSpan.getComponent() + ")";
+    }
+
+    private static final class Trace {
+
+        private final Queue<OrderSpan> spans = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        // una orden en bucle (reintentos) no puede llenar la memoria
+        private void add(OrderSpan orderSpan, int maxSpans) {
+            if (size.incrementAndGet() <= maxSpans) spans.add(orderSpan);
+        }
+    }
+}
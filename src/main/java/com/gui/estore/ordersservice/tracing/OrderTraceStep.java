@@ -0,0 +1,12 @@
+package com.gui.estore.ordersservice.tracing;
+
+import lombok.Value;
+
+// tiempo entre dos spans consecutivos de la traza: incluye lo que tardan los otros servicios en contestar
+@Value
+public class OrderTraceStep {
+
+    String from;
+    String to;
+    long durationMillis;
+}
@@ -0,0 +1,14 @@
+package com.gui.estore.ordersservice.tracing;
+
+// traceId viaja en el MetaData de los COMMAND/EVENT: misma clave que usa MessageOriginProvider de Axon,
+// así los mensajes creados dentro de un handler la heredan solos (también en el resto de servicios)
+public final class TraceMetaData {
+
+    public static final String TRACE_ID = "traceId";
+
+    // cabecera HTTP para que el cliente pase su propio traceId o recoja el generado
+    public static final String TRACE_ID_HEADER = "X-Trace-Id";
+
+    private TraceMetaData() {
+    }
+}
@@ -0,0 +1,37 @@
+package com.gui.estore.ordersservice.tracing;
+
+import org.axonframework.messaging.Message;
+import org.axonframework.messaging.MessageDispatchInterceptor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.BiFunction;
+
+// span "dispatch" (duración 0) por cada COMMAND con traceId que sale por el CommandGateway
+// marca el inicio de los pasos que se resuelven en otros servicios (reserva, pago, envío, notificación)
+public class TracingDispatchInterceptor implements MessageDispatchInterceptor<Message<?>> {
+
+    private final OrderTraceCollector orderTraceCollector;
+
+    public TracingDispatchInterceptor(OrderTraceCollector orderTraceCollector) {
+        this.orderTraceCollector = orderTraceCollector;
+    }
+
+    @Override
+    public BiFunction<Integer, Message<?>, Message<?>> handle(List<? extends Message<?>> messages) {
+        return (index, message) -> {
+            Object traceId = message.getMetaData().get(TraceMetaData.TRACE_ID);
+
+            if (traceId != null) {
+                orderTraceCollector.record(new OrderSpan(traceId.toString(),
+                        message.getPayloadType().getSimpleName(),
+                        "dispatch",
+                        "command-gateway",
+                        Instant.now(),
+                        0,
+                        true));
+            }
+            return message;
+        };
+    }
+}
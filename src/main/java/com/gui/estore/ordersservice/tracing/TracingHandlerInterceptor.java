@@ -0,0 +1,48 @@
+package com.gui.estore.ordersservice.tracing;
+
+import org.axonframework.messaging.InterceptorChain;
+import org.axonframework.messaging.Message;
+import org.axonframework.messaging.MessageHandlerInterceptor;
+import org.axonframework.messaging.unitofwork.UnitOfWork;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+// span "handle" por cada COMMAND/EVENT con traceId que se ejecuta en este servicio
+public class TracingHandlerInterceptor implements MessageHandlerInterceptor<Message<?>> {
+
+    private final OrderTraceCollector orderTraceCollector;
+    private final String component;
+
+    public TracingHandlerInterceptor(OrderTraceCollector orderTraceCollector, String component) {
+        this.orderTraceCollector = orderTraceCollector;
+        this.component = component;
+    }
+
+    @Override
+    public Object handle(UnitOfWork<? extends Message<?>> unitOfWork, InterceptorChain interceptorChain) throws Exception {
+
+        Message<?> message = unitOfWork.getMessage();
+        Object traceId = message.getMetaData().get(TraceMetaData.TRACE_ID);
+
+        if (traceId == null) return interceptorChain.proceed();
+
+        Instant start = Instant.now();
+        long startNanos = System.nanoTime();
+        boolean success = false;
+
+        try {
+            Object result = interceptorChain.proceed();
+            success = true;
+            return result;
+        } finally {
+            orderTraceCollector.record(new OrderSpan(traceId.toString(),
+                    message.getPayloadType().getSimpleName(),
+                    "handle",
+                    component,
+                    start,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                    success));
+        }
+    }
+}
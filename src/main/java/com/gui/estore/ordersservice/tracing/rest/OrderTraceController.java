@@ -0,0 +1,29 @@
+package com.gui.estore.ordersservice.tracing.rest;
+
+import com.gui.estore.ordersservice.tracing.OrderTimeline;
+import com.gui.estore.ordersservice.tracing.OrderTraceCollector;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// timeline de una orden a partir de su traceId (cabecera X-Trace-Id de newOrder)
+// solo tiene los spans de esta instancia
+@RestController
+@RequestMapping("/orders")
+public class OrderTraceController {
+
+    private final OrderTraceCollector orderTraceCollector;
+
+    public OrderTraceController(OrderTraceCollector orderTraceCollector) {
+        this.orderTraceCollector = orderTraceCollector;
+    }
+
+    @GetMapping("trace/{traceId}")
+    public ResponseEntity<OrderTimeline> getTrace(@PathVariable(value = "traceId") String traceId) {
+        return orderTraceCollector.timeline(traceId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,61 @@
+package com.gui.estore.ordersservice.admission;
+
+import com.gui.estore.ordersservice.exceptions.TooManyOrdersException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// límite adaptativo: solo lo mueven las órdenes que terminan, una orden caducada por TTL no es congestión
+class OrderAdmissionLimiterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void expiredOrdersFreeTheirSlotWithoutShrinkingTheLimit() throws InterruptedException {
+
+        OrderAdmissionLimiter orderAdmissionLimiter = adaptiveLimiter(Duration.ofSeconds(5), Duration.ofMillis(50));
+        orderAdmissionLimiter.acquire(orderIds("order", 10));
+
+        // su final no llega a esta instancia (p.ej. evento descartado)
+        Thread.sleep(100);
+
+        assertDoesNotThrow(() -> orderAdmissionLimiter.acquire(orderIds("next", 10)));
+        assertEquals(10, orderAdmissionLimiter.currentLimit());
+        assertEquals(10.0, meterRegistry.get("orders.admission.in.flight").gauge().value());
+    }
+
+    @Test
+    void slowOrdersShrinkTheLimit() throws InterruptedException {
+
+        OrderAdmissionLimiter orderAdmissionLimiter = adaptiveLimiter(Duration.ofMillis(20), Duration.ofMinutes(5));
+        orderAdmissionLimiter.acquire(List.of("slow"));
+        Thread.sleep(50);
+        orderAdmissionLimiter.release("slow");
+
+        assertEquals(9, orderAdmissionLimiter.currentLimit());
+        assertThrows(TooManyOrdersException.class, () -> {
+            orderAdmissionLimiter.acquire(orderIds("order", 9));
+            orderAdmissionLimiter.acquire(List.of("over"));
+        });
+
+        orderIds("order", 9).forEach(orderAdmissionLimiter::release);
+        assertEquals(0.0, meterRegistry.get("orders.admission.in.flight").gauge().value());
+    }
+
+    private OrderAdmissionLimiter adaptiveLimiter(Duration latencyTarget, Duration inFlightTtl) {
+        return new OrderAdmissionLimiter(meterRegistry, true, "adaptive", 10, 1, 100,
+                latencyTarget, 0.9, inFlightTtl, Duration.ofSeconds(2));
+    }
+
+    private static List<String> orderIds(String prefix, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> prefix + "-" + i)
+                .collect(Collectors.toList());
+    }
+}
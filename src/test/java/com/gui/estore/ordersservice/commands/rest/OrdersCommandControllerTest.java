@@ -0,0 +1,276 @@
+package com.gui.estore.ordersservice.commands.rest;
+
+import com.gui.estore.ordersservice.admission.OrderAdmissionLimiter;
+import com.gui.estore.ordersservice.commands.CreateOrderCommand;
+import com.gui.estore.ordersservice.commands.OrderBatchDispatcher;
+import com.gui.estore.ordersservice.exceptions.OrderErrorHandler;
+import com.gui.estore.ordersservice.exceptions.TooManyOrdersException;
+import com.gui.estore.ordersservice.model.OrderStatus;
+import com.gui.estore.ordersservice.model.OrderSummary;
+import com.gui.estore.ordersservice.queries.FindOrderQuery;
+import com.gui.estore.ordersservice.tracing.TraceMetaData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.axonframework.commandhandling.CommandExecutionException;
+import org.axonframework.commandhandling.gateway.CommandGateway;
+import org.axonframework.messaging.responsetypes.ResponseType;
+import org.axonframework.queryhandling.QueryGateway;
+import org.axonframework.queryhandling.SubscriptionQueryResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import reactor.core.publisher.Flux;
+
+import javax.servlet.AsyncListener;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// createOrder con DeferredResult: 200 con el update de SAGA, 202 al vencer el timeout, error del COMMAND y fallo
+// al suscribirse o enviar antes de devolver el DeferredResult (la plaza de admisión no se pierde)
+// batch en stream: órdenes que terminan con el cliente ya desconectado
+class OrdersCommandControllerTest {
+
+    private static final String NEW_ORDER = "{\"productId\":\"product-1\",\"quantity\":1,\"addressId\":\"address-1\"}";
+    private static final String NEW_ORDERS = "{\"orders\":[" + NEW_ORDER + "," + NEW_ORDER + "]}";
+
+    private CommandGateway commandGateway;
+    private QueryGateway queryGateway;
+    private SubscriptionQueryResult<OrderSummary, OrderSummary> subscriptionQueryResult;
+    private OrderBatchDispatcher orderBatchDispatcher;
+    private OrderAdmissionLimiter orderAdmissionLimiter;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+
+        commandGateway = mock(CommandGateway.class);
+        queryGateway = mock(QueryGateway.class);
+        subscriptionQueryResult = mock(SubscriptionQueryResult.class);
+        orderBatchDispatcher = mock(OrderBatchDispatcher.class);
+
+        doReturn(CompletableFuture.completedFuture("order-1")).when(commandGateway).send(any());
+        doReturn(subscriptionQueryResult).when(queryGateway)
+                .subscriptionQuery(any(FindOrderQuery.class), any(ResponseType.class), any(ResponseType.class));
+
+        // una única orden en curso: se ve si la petición libera su plaza o no
+        mockMvc = mockMvc(1);
+    }
+
+    @Test
+    void returnsOkWithTheSagaUpdate() throws Exception {
+
+        doReturn(Flux.just(new OrderSummary("order-1", OrderStatus.APPROVED, "ORDER APPROVED")))
+                .when(subscriptionQueryResult).updates();
+
+        MvcResult mvcResult = mockMvc.perform(newOrder())
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string(TraceMetaData.TRACE_ID_HEADER, "trace-1"))
+                .andExpect(jsonPath("$.orderStatus").value("APPROVED"));
+
+        // orden terminada: la plaza queda libre
+        assertDoesNotThrow(() -> orderAdmissionLimiter.acquire(List.of("order-2")));
+    }
+
+    @Test
+    void returnsAcceptedWhenTheSagaDoesNotAnswerInTime() throws Exception {
+
+        doReturn(Flux.never()).when(subscriptionQueryResult).updates();
+
+        MvcResult mvcResult = mockMvc.perform(newOrder())
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // MockMvc no vence los DeferredResult: se lanza el timeout a mano como haría el contenedor
+        MockAsyncContext asyncContext = (MockAsyncContext) mvcResult.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(null);
+        }
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, containsString("/orders/getOrder/")))
+                .andExpect(header().string(TraceMetaData.TRACE_ID_HEADER, "trace-1"))
+                .andExpect(jsonPath("$.orderStatus").value("CREATED"));
+
+        // la orden sigue en curso: la libera OrderAdmissionEventsHandler o el TTL
+        assertThrows(TooManyOrdersException.class, () -> orderAdmissionLimiter.acquire(List.of("order-2")));
+    }
+
+    @Test
+    void returnsTheCommandErrorAndReleasesTheOrder() throws Exception {
+
+        doReturn(CompletableFuture.failedFuture(new CommandExecutionException("Producto sin stock", null)))
+                .when(commandGateway).send(any());
+
+        MvcResult mvcResult = mockMvc.perform(newOrder())
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isInternalServerError());
+
+        assertDoesNotThrow(() -> orderAdmissionLimiter.acquire(List.of("order-2")));
+    }
+
+    @Test
+    void releasesTheOrderAndClosesTheSubscriptionWhenTheCommandCannotBeSent() throws Exception {
+
+        doThrow(new IllegalStateException("sin CommandBus")).when(commandGateway).send(any());
+
+        mockMvc.perform(newOrder())
+                .andExpect(status().isInternalServerError());
+
+        verify(subscriptionQueryResult, times(1)).close();
+        assertDoesNotThrow(() -> orderAdmissionLimiter.acquire(List.of("order-2")));
+    }
+
+    @Test
+    void releasesTheOrderWhenTheSubscriptionCannotBeOpened() throws Exception {
+
+        doThrow(new IllegalStateException("sin QueryBus")).when(queryGateway)
+                .subscriptionQuery(any(FindOrderQuery.class), any(ResponseType.class), any(ResponseType.class));
+
+        mockMvc.perform(newOrder())
+                .andExpect(status().isInternalServerError());
+
+        verify(commandGateway, never()).send(any());
+        assertDoesNotThrow(() -> orderAdmissionLimiter.acquire(List.of("order-2")));
+    }
+
+    @Test
+    void doesNotHoldTheRequestThreadWhileWaiting() throws Exception {
+
+        doReturn(Flux.never()).when(subscriptionQueryResult).updates();
+        int orders = 2_000;
+        MockMvc loadMockMvc = mockMvc(orders);
+
+        // 2000 órdenes pendientes de SAGA con un pool de 8 hilos que hace de hilos de Tomcat:
+        // con sendAndWait/blockFirst los 8 hilos se quedarían bloqueados con las primeras 8 peticiones
+        int servletThreads = 8;
+        ExecutorService servletPool = Executors.newFixedThreadPool(servletThreads);
+        AtomicInteger activeRequests = new AtomicInteger();
+        AtomicInteger maxActiveRequests = new AtomicInteger();
+        List<MvcResult> results = Collections.synchronizedList(new ArrayList<>());
+
+        try {
+            List<Future<?>> requests = new ArrayList<>(orders);
+            for (int i = 0; i < orders; i++) {
+                requests.add(servletPool.submit(() -> {
+                    maxActiveRequests.accumulateAndGet(activeRequests.incrementAndGet(), Math::max);
+                    try {
+                        results.add(loadMockMvc.perform(newOrder()).andExpect(request().asyncStarted()).andReturn());
+                    } finally {
+                        activeRequests.decrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : requests) future.get(30, TimeUnit.SECONDS);
+        } finally {
+            servletPool.shutdownNow();
+        }
+
+        // todas las peticiones han devuelto el hilo con su orden todavía en curso
+        assertEquals(0, activeRequests.get(), "hilos de petición bloqueados");
+        assertTrue(maxActiveRequests.get() <= servletThreads);
+        assertEquals(orders, results.size());
+        assertTrue(results.stream().noneMatch(mvcResult ->
+                        WebAsyncUtils.getAsyncManager(mvcResult.getRequest()).hasConcurrentResult()),
+                "alguna orden ha terminado sin respuesta de SAGA");
+        assertThrows(TooManyOrdersException.class, () -> orderAdmissionLimiter.acquire(List.of("order-" + orders)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamSkipsOrdersFinishedAfterTheClientLeft() throws Exception {
+
+        AtomicReference<List<CreateOrderCommand>> commands = new AtomicReference<>();
+        AtomicReference<Consumer<CreateOrderCommand>> beforeSend = new AtomicReference<>();
+        AtomicReference<BiConsumer<CreateOrderCommand, Throwable>> afterSend = new AtomicReference<>();
+        doAnswer(invocation -> {
+            commands.set(invocation.getArgument(0));
+            beforeSend.set(invocation.getArgument(1));
+            afterSend.set(invocation.getArgument(2));
+            return CompletableFuture.completedFuture(null);
+        }).when(orderBatchDispatcher).dispatch(any(), any(), any());
+
+        MockMvc batchMockMvc = mockMvc(2);
+        MvcResult mvcResult = batchMockMvc.perform(post("/orders/batch")
+                        .param("stream", "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .content(NEW_ORDERS))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        CreateOrderCommand first = commands.get().get(0);
+        CreateOrderCommand second = commands.get().get(1);
+
+        // el cliente se desconecta con el primer COMMAND en vuelo y el segundo sin enviar
+        beforeSend.get().accept(first);
+        ((MockAsyncContext) mvcResult.getRequest().getAsyncContext()).complete();
+        beforeSend.get().accept(second);
+
+        assertDoesNotThrow(() -> afterSend.get().accept(first, null));
+        assertDoesNotThrow(() -> afterSend.get().accept(second, null));
+
+        // una única suscripción, cerrada al desconectarse, y las dos plazas libres
+        verify(queryGateway, times(1)).subscriptionQuery(any(FindOrderQuery.class), any(ResponseType.class), any(ResponseType.class));
+        verify(subscriptionQueryResult, times(1)).close();
+        verify(subscriptionQueryResult, never()).updates();
+        assertDoesNotThrow(() -> orderAdmissionLimiter.acquire(List.of("order-2", "order-3")));
+    }
+
+    private MockMvc mockMvc(int admissionLimit) {
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        orderAdmissionLimiter = new OrderAdmissionLimiter(meterRegistry, true, "fixed", admissionLimit, 1, admissionLimit,
+                Duration.ofSeconds(5), 0.9, Duration.ofMinutes(5), Duration.ofSeconds(2));
+
+        OrdersCommandController controller = new OrdersCommandController(commandGateway, queryGateway,
+                orderBatchDispatcher, orderAdmissionLimiter, meterRegistry,
+                Duration.ofSeconds(30), Duration.ofMinutes(5));
+
+        return MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new OrderErrorHandler())
+                .build();
+    }
+
+    private static MockHttpServletRequestBuilder newOrder() {
+        return post("/orders/newOrder")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(TraceMetaData.TRACE_ID_HEADER, "trace-1")
+                .content(NEW_ORDER);
+    }
+}
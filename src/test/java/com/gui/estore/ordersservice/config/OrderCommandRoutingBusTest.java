@@ -0,0 +1,218 @@
+package com.gui.estore.ordersservice.config;
+
+import com.gui.estore.ordersservice.commands.ApproveOrderCommand;
+import org.axonframework.commandhandling.CommandBus;
+import org.axonframework.commandhandling.CommandCallback;
+import org.axonframework.commandhandling.CommandMessage;
+import org.axonframework.commandhandling.GenericCommandMessage;
+import org.axonframework.commandhandling.SimpleCommandBus;
+import org.axonframework.commandhandling.callbacks.FutureCallback;
+import org.axonframework.commandhandling.distributed.AnnotationRoutingStrategy;
+import org.axonframework.commandhandling.distributed.CommandBusConnector;
+import org.axonframework.commandhandling.distributed.CommandMessageFilter;
+import org.axonframework.commandhandling.distributed.CommandRouter;
+import org.axonframework.commandhandling.distributed.ConsistentHash;
+import org.axonframework.commandhandling.distributed.DistributedCommandBus;
+import org.axonframework.commandhandling.distributed.Member;
+import org.axonframework.commandhandling.distributed.RoutingStrategy;
+import org.axonframework.commandhandling.distributed.SimpleMember;
+import org.axonframework.common.Registration;
+import org.axonframework.messaging.GenericMessage;
+import org.axonframework.messaging.MessageHandler;
+import org.axonframework.messaging.MessageHandlerInterceptor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// tres instancias de order-service en memoria con OrderCommandRoutingBus sobre DistributedCommandBus:
+// el anillo compartido hace de SpringCloudCommandRouter y las llamadas entre nodos van directas al segmento local
+// del nodo destino; un SimpleCommandBus aparte hace de Axon Server para los COMMAND de otros servicios
+class OrderCommandRoutingBusTest {
+
+    private static final int ORDERS = 300;
+    private static final String RESERVE_PRODUCT = "com.gui.estore.core.commands.ReserveProductCommand";
+
+    private final AtomicReference<ConsistentHash> ring = new AtomicReference<>(new ConsistentHash());
+    private final RoutingStrategy routingStrategy = new AnnotationRoutingStrategy();
+    private final Map<String, String> handledBy = new ConcurrentHashMap<>();
+    private final List<Node> nodes = new ArrayList<>();
+    private final List<String> sentToAxonServer = new ArrayList<>();
+
+    private SimpleCommandBus axonServer;
+
+    @BeforeEach
+    void setUp() {
+
+        axonServer = SimpleCommandBus.builder().build();
+        axonServer.subscribe(RESERVE_PRODUCT, command -> {
+            sentToAxonServer.add((String) command.getPayload());
+            return null;
+        });
+
+        for (int i = 1; i <= 3; i++) nodes.add(new Node("order-service-" + i));
+    }
+
+    @Test
+    void eachOrderIsHandledByASingleNodeWhateverNodeSendsIt() throws Exception {
+
+        List<String> orderIds = orderIds();
+        Random random = new Random(42);
+
+        // varios COMMAND por orden desde nodos al azar, como las peticiones que reparte el balanceador
+        for (int round = 0; round < 3; round++) {
+            for (String orderId : orderIds) {
+                String owner = approve(nodes.get(random.nextInt(nodes.size())), orderId);
+                assertEquals(handledBy.get(orderId), owner, "la orden " + orderId + " ha cambiado de nodo");
+            }
+        }
+
+        // las tres instancias tienen su parte del anillo
+        Map<String, Long> ordersPerNode = handledBy.values().stream()
+                .collect(Collectors.groupingBy(node -> node, Collectors.counting()));
+        assertEquals(3, ordersPerNode.size(), ordersPerNode.toString());
+    }
+
+    @Test
+    void onlyTheOrdersOfALeavingNodeChangeOwner() throws Exception {
+
+        List<String> orderIds = orderIds();
+        Map<String, String> before = owners(orderIds);
+
+        // se cae order-service-3: sale del anillo como al desaparecer del discovery
+        Node leaving = nodes.get(2);
+        ring.updateAndGet(hash -> hash.without(leaving.member));
+        Map<String, String> after = owners(orderIds);
+
+        for (String orderId : orderIds) {
+            if (before.get(orderId).equals(leaving.name)) assertNotEquals(leaving.name, after.get(orderId));
+            else assertEquals(before.get(orderId), after.get(orderId), "la orden " + orderId + " no era del nodo caído");
+        }
+
+        // vuelve: recupera exactamente sus órdenes
+        leaving.distributedCommandBus.updateLoadFactor(100);
+        assertEquals(before, owners(orderIds));
+    }
+
+    @Test
+    void commandsWithoutLocalHandlerGoThroughAxonServer() throws Exception {
+
+        FutureCallback<Object, Object> callback = new FutureCallback<>();
+        nodes.get(0).commandBus.dispatch(
+                new GenericCommandMessage<>(new GenericMessage<>("product-1"), RESERVE_PRODUCT), callback);
+        callback.getResult(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("product-1"), sentToAxonServer);
+        assertTrue(handledBy.isEmpty());
+    }
+
+    private List<String> orderIds() {
+        List<String> orderIds = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) orderIds.add(UUID.randomUUID().toString());
+        return orderIds;
+    }
+
+    // dueño de cada orden enviando siempre desde order-service-1, que no sale del anillo
+    private Map<String, String> owners(List<String> orderIds) throws Exception {
+        Map<String, String> owners = new HashMap<>();
+        for (String orderId : orderIds) owners.put(orderId, approve(nodes.get(0), orderId));
+        return owners;
+    }
+
+    private String approve(Node sender, String orderId) throws Exception {
+        FutureCallback<ApproveOrderCommand, Object> callback = new FutureCallback<>();
+        sender.commandBus.dispatch(GenericCommandMessage.asCommandMessage(new ApproveOrderCommand(orderId)), callback);
+        return (String) callback.getResult(5, TimeUnit.SECONDS).getPayload();
+    }
+
+    private class Node {
+
+        private final String name;
+        private final SimpleCommandBus localSegment = SimpleCommandBus.builder().build();
+        private final SimpleMember<SimpleCommandBus> member;
+        private final DistributedCommandBus distributedCommandBus;
+        private final CommandBus commandBus;
+
+        private Node(String name) {
+            this.name = name;
+            this.member = new SimpleMember<>(name, localSegment, false, null);
+            this.distributedCommandBus = DistributedCommandBus.builder()
+                    .commandRouter(new RingRouter(member))
+                    .connector(new InMemoryConnector(localSegment))
+                    .build();
+            this.commandBus = new OrderCommandRoutingBus(distributedCommandBus, axonServer);
+
+            // el handler de OrderAggregate: contesta con el nodo que lo ejecuta
+            commandBus.subscribe(ApproveOrderCommand.class.getName(), command -> {
+                handledBy.putIfAbsent(((ApproveOrderCommand) command.getPayload()).getOrderId(), name);
+                return name;
+            });
+        }
+    }
+
+    // lo que hace SpringCloudCommandRouter con lo que publica cada instancia: un único anillo para todas
+    private class RingRouter implements CommandRouter {
+
+        private final Member member;
+
+        private RingRouter(Member member) {
+            this.member = member;
+        }
+
+        @Override
+        public Optional<Member> findDestination(CommandMessage<?> commandMessage) {
+            return ring.get().getMember(routingStrategy.getRoutingKey(commandMessage), commandMessage);
+        }
+
+        @Override
+        public void updateMembership(int loadFactor, CommandMessageFilter commandFilter) {
+            ring.updateAndGet(hash -> hash.with(member, loadFactor, commandFilter));
+        }
+    }
+
+    // lo que hace SpringHttpCommandBusConnector sin HTTP: el COMMAND se ejecuta en el segmento local del destino
+    private static class InMemoryConnector implements CommandBusConnector {
+
+        private final SimpleCommandBus localSegment;
+
+        private InMemoryConnector(SimpleCommandBus localSegment) {
+            this.localSegment = localSegment;
+        }
+
+        @Override
+        public <C> void send(Member destination, CommandMessage<? extends C> command) {
+            endpoint(destination).dispatch(command);
+        }
+
+        @Override
+        public <C, R> void send(Member destination, CommandMessage<C> command, CommandCallback<? super C, R> callback) {
+            endpoint(destination).dispatch(command, callback);
+        }
+
+        @Override
+        public Registration subscribe(String commandName, MessageHandler<? super CommandMessage<?>> handler) {
+            return localSegment.subscribe(commandName, handler);
+        }
+
+        @Override
+        public Registration registerHandlerInterceptor(MessageHandlerInterceptor<? super CommandMessage<?>> handlerInterceptor) {
+            return localSegment.registerHandlerInterceptor(handlerInterceptor);
+        }
+
+        private static SimpleCommandBus endpoint(Member destination) {
+            return destination.getConnectionEndpoint(SimpleCommandBus.class).orElseThrow();
+        }
+    }
+}
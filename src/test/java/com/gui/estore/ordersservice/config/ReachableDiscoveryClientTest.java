@@ -0,0 +1,90 @@
+package com.gui.estore.ordersservice.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.simple.SimpleDiscoveryClient;
+import org.springframework.cloud.client.discovery.simple.SimpleDiscoveryProperties;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// perfil distributed-local con una sonda de mentira en lugar del connect TCP: un nodo que deja de responder sale
+// de la lista en el siguiente refresh y vuelve a entrar en cuanto responde otra vez
+class ReachableDiscoveryClientTest {
+
+    private static final String ORDER_SERVICE = "order-service";
+
+    // puertos de los nodos que no responden
+    private final Set<Integer> down = ConcurrentHashMap.newKeySet();
+
+    private ReachableDiscoveryClient reachableDiscoveryClient;
+
+    @BeforeEach
+    void setUp() {
+
+        // la lista fija de spring.cloud.discovery.client.simple.instances
+        SimpleDiscoveryProperties simpleDiscoveryProperties = new SimpleDiscoveryProperties();
+        simpleDiscoveryProperties.setInstances(Map.of(ORDER_SERVICE, List.of(
+                instance(8081), instance(8082), instance(8083))));
+
+        reachableDiscoveryClient = new ReachableDiscoveryClient(new SimpleDiscoveryClient(simpleDiscoveryProperties),
+                serviceInstance -> !down.contains(serviceInstance.getPort()));
+    }
+
+    @Test
+    void isEmptyUntilTheFirstRefresh() {
+
+        // CompositeDiscoveryClient pasa a la lista fija mientras tanto
+        assertTrue(reachableDiscoveryClient.getServices().isEmpty());
+        assertTrue(reachableDiscoveryClient.getInstances(ORDER_SERVICE).isEmpty());
+    }
+
+    @Test
+    void aFailingNodeDropsOutAndRejoinsOnTheNextRefresh() {
+
+        reachableDiscoveryClient.refresh();
+        assertEquals(List.of(ORDER_SERVICE), reachableDiscoveryClient.getServices());
+        assertEquals(List.of(8081, 8082, 8083), ports());
+
+        // se para el nodo 8082: sigue en la lista hasta el siguiente refresh
+        down.add(8082);
+        assertEquals(List.of(8081, 8082, 8083), ports());
+        reachableDiscoveryClient.refresh();
+        assertEquals(List.of(8081, 8083), ports());
+
+        // vuelve a arrancar
+        down.remove(8082);
+        reachableDiscoveryClient.refresh();
+        assertEquals(List.of(8081, 8082, 8083), ports());
+    }
+
+    @Test
+    void keepsTheServiceWithNoReachableInstances() {
+
+        down.addAll(List.of(8081, 8082, 8083));
+        reachableDiscoveryClient.refresh();
+
+        assertEquals(List.of(ORDER_SERVICE), reachableDiscoveryClient.getServices());
+        assertTrue(reachableDiscoveryClient.getInstances(ORDER_SERVICE).isEmpty());
+        assertTrue(reachableDiscoveryClient.getInstances("product-service").isEmpty());
+    }
+
+    private List<Integer> ports() {
+        return reachableDiscoveryClient.getInstances(ORDER_SERVICE).stream()
+                .map(ServiceInstance::getPort)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private static DefaultServiceInstance instance(int port) {
+        return new DefaultServiceInstance(ORDER_SERVICE + "-" + port, ORDER_SERVICE, "localhost", port, false);
+    }
+}
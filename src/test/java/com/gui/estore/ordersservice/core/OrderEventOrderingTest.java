@@ -0,0 +1,172 @@
+package com.gui.estore.ordersservice.core;
+
+import com.gui.estore.ordersservice.commands.ApproveOrderCommand;
+import com.gui.estore.ordersservice.commands.CreateOrderCommand;
+import com.gui.estore.ordersservice.commands.OrderAggregate;
+import com.gui.estore.ordersservice.core.events.OrderApprovedEvent;
+import com.gui.estore.ordersservice.core.events.OrderCreatedEvent;
+import com.gui.estore.ordersservice.core.events.OrderRejectedEvent;
+import com.gui.estore.ordersservice.model.OrderStatus;
+import org.axonframework.common.transaction.NoTransactionManager;
+import org.axonframework.eventhandling.DomainEventMessage;
+import org.axonframework.eventhandling.EventHandler;
+import org.axonframework.eventhandling.EventMessage;
+import org.axonframework.eventhandling.GenericDomainEventMessage;
+import org.axonframework.eventhandling.SimpleEventHandlerInvoker;
+import org.axonframework.eventhandling.pooled.PooledStreamingEventProcessor;
+import org.axonframework.eventhandling.tokenstore.inmemory.InMemoryTokenStore;
+import org.axonframework.eventsourcing.eventstore.EmbeddedEventStore;
+import org.axonframework.eventsourcing.eventstore.inmemory.InMemoryEventStorageEngine;
+import org.axonframework.test.aggregate.AggregateTestFixture;
+import org.axonframework.test.matchers.Matchers;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// order-group usa la sequencing policy por defecto (por identificador de AGGREGATE):
+// los eventos de OrderAggregate llevan el orderId como identificador y los de una misma orden
+// se procesan en orden aunque el procesador pooled los reparta entre segmentos e hilos
+class OrderEventOrderingTest {
+
+    private static final int ORDERS = 200;
+
+    @Test
+    void orderEventsAreIdentifiedByTheirOrderId() {
+
+        AggregateTestFixture<OrderAggregate> fixture = new AggregateTestFixture<>(OrderAggregate.class);
+        String orderId = UUID.randomUUID().toString();
+
+        fixture.givenNoPriorActivity()
+                .when(createOrderCommand(orderId))
+                .expectEventsMatching(Matchers.<EventMessage<?>>exactSequenceOf(
+                        hasProperty("aggregateIdentifier", equalTo(orderId)),
+                        Matchers.andNoMore()));
+
+        fixture.givenCommands(createOrderCommand(orderId))
+                .when(new ApproveOrderCommand(orderId))
+                .expectEventsMatching(Matchers.<EventMessage<?>>exactSequenceOf(
+                        hasProperty("aggregateIdentifier", equalTo(orderId)),
+                        Matchers.andNoMore()));
+    }
+
+    @Test
+    void eventsOfTheSameOrderAreHandledInOrder() throws InterruptedException {
+
+        EmbeddedEventStore eventStore = EmbeddedEventStore.builder()
+                .storageEngine(new InMemoryEventStorageEngine())
+                .build();
+
+        // primero todas las creaciones y después todos los finales, para que cada orden tenga eventos en varios lotes
+        List<String> orderIds = IntStream.range(0, ORDERS)
+                .mapToObj(i -> UUID.randomUUID().toString())
+                .collect(Collectors.toList());
+        orderIds.forEach(orderId -> eventStore.publish(domainEvent(orderId, 0, orderCreatedEvent(orderId))));
+        for (int i = 0; i < ORDERS; i++) {
+            String orderId = orderIds.get(i);
+            eventStore.publish(domainEvent(orderId, 1, i % 2 == 0
+                    ? new OrderApprovedEvent(orderId, OrderStatus.APPROVED)
+                    : new OrderRejectedEvent(orderId, "Producto sin stock", OrderStatus.REJECTED)));
+        }
+
+        RecordingEventHandler recordingEventHandler = new RecordingEventHandler(ORDERS * 2);
+        ScheduledExecutorService coordinatorExecutor = Executors.newSingleThreadScheduledExecutor();
+        ScheduledExecutorService workerExecutor = Executors.newScheduledThreadPool(4);
+
+        // misma configuración que order-group en application.properties
+        PooledStreamingEventProcessor processor = PooledStreamingEventProcessor.builder()
+                .name("order-group")
+                .eventHandlerInvoker(SimpleEventHandlerInvoker.builder().eventHandlers(recordingEventHandler).build())
+                .messageSource(eventStore)
+                .tokenStore(new InMemoryTokenStore())
+                .transactionManager(NoTransactionManager.instance())
+                .coordinatorExecutor(coordinatorExecutor)
+                .workerExecutor(workerExecutor)
+                .initialSegmentCount(8)
+                .batchSize(50)
+                .build();
+
+        try {
+            processor.start();
+            assertTrue(recordingEventHandler.done.await(30, TimeUnit.SECONDS), "no se han procesado todos los eventos");
+        } finally {
+            processor.shutDown();
+            coordinatorExecutor.shutdownNow();
+            workerExecutor.shutdownNow();
+            eventStore.shutDown();
+        }
+
+        for (int i = 0; i < ORDERS; i++) {
+            assertEquals(List.of("created", i % 2 == 0 ? "approved" : "rejected"),
+                    recordingEventHandler.handled.get(orderIds.get(i)), "orden " + orderIds.get(i));
+        }
+    }
+
+    private static CreateOrderCommand createOrderCommand(String orderId) {
+        return CreateOrderCommand.builder()
+                .orderId(orderId)
+                .userId("27b95829-4f3f-4ddf-8983-151ba010e35b")
+                .productId("product-1")
+                .quantity(1)
+                .addressId("address-1")
+                .orderStatus(OrderStatus.CREATED)
+                .build();
+    }
+
+    private static OrderCreatedEvent orderCreatedEvent(String orderId) {
+        return new OrderCreatedEvent(orderId, "product-1", "27b95829-4f3f-4ddf-8983-151ba010e35b", 1, "address-1",
+                OrderStatus.CREATED);
+    }
+
+    private static DomainEventMessage<?> domainEvent(String orderId, long sequenceNumber, Object payload) {
+        return new GenericDomainEventMessage<>("OrderAggregate", orderId, sequenceNumber, payload);
+    }
+
+    static class RecordingEventHandler {
+
+        private final Map<String, List<String>> handled = new ConcurrentHashMap<>();
+        private final CountDownLatch done;
+
+        RecordingEventHandler(int events) {
+            this.done = new CountDownLatch(events);
+        }
+
+        // la creación tarda algo más: si el final de la misma orden fuera por otro hilo llegaría antes
+        @EventHandler
+        public void on(OrderCreatedEvent orderCreatedEvent) throws InterruptedException {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+            record(orderCreatedEvent.getOrderId(), "created");
+        }
+
+        @EventHandler
+        public void on(OrderApprovedEvent orderApprovedEvent) {
+            record(orderApprovedEvent.getOrderId(), "approved");
+        }
+
+        @EventHandler
+        public void on(OrderRejectedEvent orderRejectedEvent) {
+            record(orderRejectedEvent.getOrderId(), "rejected");
+        }
+
+        private void record(String orderId, String step) {
+            handled.computeIfAbsent(orderId, id -> Collections.synchronizedList(new ArrayList<>())).add(step);
+            done.countDown();
+        }
+    }
+}
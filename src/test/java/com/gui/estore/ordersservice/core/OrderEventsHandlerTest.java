@@ -0,0 +1,217 @@
+package com.gui.estore.ordersservice.core;
+
+import com.gui.estore.ordersservice.core.events.OrderApprovedEvent;
+import com.gui.estore.ordersservice.core.events.OrderCreatedEvent;
+import com.gui.estore.ordersservice.core.events.OrderRejectedEvent;
+import com.gui.estore.ordersservice.exceptions.BatchFallbackErrorHandler;
+import com.gui.estore.ordersservice.exceptions.BoundedRetryEventErrorHandler;
+import com.gui.estore.ordersservice.model.OrderEntity;
+import com.gui.estore.ordersservice.model.OrderStatus;
+import com.gui.estore.ordersservice.repositories.OrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.axonframework.eventhandling.DomainEventMessage;
+import org.axonframework.eventhandling.GenericDomainEventMessage;
+import org.axonframework.eventhandling.GenericEventMessage;
+import org.axonframework.eventhandling.SimpleEventHandlerInvoker;
+import org.axonframework.eventhandling.pooled.PooledStreamingEventProcessor;
+import org.axonframework.eventhandling.tokenstore.inmemory.InMemoryTokenStore;
+import org.axonframework.eventsourcing.eventstore.EmbeddedEventStore;
+import org.axonframework.eventsourcing.eventstore.inmemory.InMemoryEventStorageEngine;
+import org.axonframework.messaging.unitofwork.DefaultUnitOfWork;
+import org.axonframework.spring.messaging.unitofwork.SpringTransactionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// escrituras en lote de order-group sobre H2: los eventos que vuelven a llegar (token desde el principio sobre una
+// BD con la proyección ya construida, reintento de un lote) no rompen el lote con claves duplicadas, y un evento
+// que falla siempre se descarta sin perder el resto de su lote
+// sin transacción de test: cada lote hace commit como en el procesador
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderEventsHandlerTest {
+
+    private static final String USER_ID = "27b95829-4f3f-4ddf-8983-151ba010e35b";
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private OrderEventsHandler orderEventsHandler;
+
+    @BeforeEach
+    void setUp() {
+        orderEventsHandler = new OrderEventsHandler(orderRepository, entityManager, transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void replayOverAnExistingProjectionAppliesOnlyWhatIsMissing() {
+
+        // proyección que dejó order-group cuando era subscribing: las órdenes ya tienen su estado final
+        List<String> existing = orderIds(40);
+        for (int i = 0; i < existing.size(); i++) {
+            orderRepository.save(new OrderEntity(existing.get(i), USER_ID, "product-1", 1, "address-1",
+                    i % 2 == 0 ? OrderStatus.APPROVED : OrderStatus.REJECTED, Instant.EPOCH));
+        }
+
+        // el histórico entero vuelve a llegar en lotes de 50, seguido de órdenes nuevas
+        List<String> fresh = orderIds(10);
+        inBatch(() -> existing.forEach(this::created));
+        inBatch(() -> {
+            for (int i = 0; i < existing.size(); i++) finished(existing.get(i), i % 2 == 0);
+            fresh.forEach(this::created);
+        });
+        inBatch(() -> fresh.forEach(orderId -> finished(orderId, true)));
+
+        assertEquals(existing.size() + fresh.size(), orderRepository.count());
+        for (int i = 0; i < existing.size(); i++) {
+            OrderEntity orderEntity = orderRepository.findByOrderId(existing.get(i)).orElseThrow();
+            assertEquals(i % 2 == 0 ? OrderStatus.APPROVED : OrderStatus.REJECTED, orderEntity.getOrderStatus());
+            // la fila existente no se sustituye por la del evento repetido
+            assertEquals(Instant.EPOCH, orderEntity.getCreatedAt());
+        }
+        fresh.forEach(orderId -> assertEquals(OrderStatus.APPROVED, status(orderId)));
+    }
+
+    @Test
+    void aRedeliveredBatchIsAppliedOnce() {
+
+        List<String> orderIds = orderIds(25);
+        Runnable batch = () -> orderIds.forEach(orderId -> {
+            created(orderId);
+            finished(orderId, false);
+        });
+
+        inBatch(batch);
+        inBatch(batch);
+
+        assertEquals(orderIds.size(), orderRepository.count());
+        orderIds.forEach(orderId -> assertEquals(OrderStatus.REJECTED, status(orderId)));
+    }
+
+    @Test
+    void aPoisonEventIsSkippedWithoutLosingTheRestOfItsBatch() throws InterruptedException {
+
+        // un único lote: órdenes creadas y aprobadas con, en medio, la aprobación de una orden que no existe
+        EmbeddedEventStore eventStore = EmbeddedEventStore.builder()
+                .storageEngine(new InMemoryEventStorageEngine())
+                .build();
+        List<String> orderIds = orderIds(20);
+        orderIds.forEach(orderId -> eventStore.publish(domainEvent(orderId, 0, orderCreatedEvent(orderId))));
+        eventStore.publish(domainEvent("missing-order", 0, new OrderApprovedEvent("missing-order", OrderStatus.APPROVED)));
+        orderIds.forEach(orderId -> eventStore.publish(domainEvent(orderId, 1, new OrderApprovedEvent(orderId, OrderStatus.APPROVED))));
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ScheduledExecutorService coordinatorExecutor = Executors.newSingleThreadScheduledExecutor();
+        ScheduledExecutorService workerExecutor = Executors.newSingleThreadScheduledExecutor();
+
+        // los manejadores de error de order-group en AxonConfig, con 2 intentos
+        PooledStreamingEventProcessor processor = PooledStreamingEventProcessor.builder()
+                .name("order-group")
+                .eventHandlerInvoker(SimpleEventHandlerInvoker.builder()
+                        .eventHandlers(orderEventsHandler)
+                        .listenerInvocationErrorHandler(new BoundedRetryEventErrorHandler("order-group", 2, meterRegistry))
+                        .build())
+                .errorHandler(new BatchFallbackErrorHandler(orderEventsHandler::writeIndividually))
+                .messageSource(eventStore)
+                .tokenStore(new InMemoryTokenStore())
+                .transactionManager(new SpringTransactionManager(transactionManager))
+                .coordinatorExecutor(coordinatorExecutor)
+                .workerExecutor(workerExecutor)
+                .initialSegmentCount(1)
+                .batchSize(50)
+                .tokenClaimInterval(100)
+                .build();
+
+        try {
+            processor.start();
+
+            long deadline = System.currentTimeMillis() + 60_000;
+            while (meterRegistry.counter("orders.events.skipped", "processingGroup", "order-group").count() < 1
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            assertEquals(1, meterRegistry.counter("orders.events.skipped", "processingGroup", "order-group").count(),
+                    "el evento que falla siempre no se ha descartado");
+
+            while (orderIds.stream().anyMatch(orderId -> status(orderId) != OrderStatus.APPROVED)
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+        } finally {
+            processor.shutDown();
+            coordinatorExecutor.shutdownNow();
+            workerExecutor.shutdownNow();
+            eventStore.shutDown();
+        }
+
+        assertEquals(orderIds.size(), orderRepository.count());
+        assertTrue(orderIds.stream().allMatch(orderId -> status(orderId) == OrderStatus.APPROVED),
+                "el resto del lote no se ha aplicado");
+    }
+
+    // un lote del procesador: los cambios se aplican al hacer commit de la unidad de trabajo
+    private void inBatch(Runnable events) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                DefaultUnitOfWork.startAndGet(GenericEventMessage.asEventMessage("batch")).execute(events));
+    }
+
+    private void created(String orderId) {
+        orderEventsHandler.on(orderCreatedEvent(orderId), Instant.now(), UUID.randomUUID().toString());
+    }
+
+    private void finished(String orderId, boolean approved) {
+        if (approved) {
+            orderEventsHandler.on(new OrderApprovedEvent(orderId, OrderStatus.APPROVED), UUID.randomUUID().toString());
+        } else {
+            orderEventsHandler.on(new OrderRejectedEvent(orderId, "Producto sin stock", OrderStatus.REJECTED),
+                    UUID.randomUUID().toString());
+        }
+    }
+
+    private OrderStatus status(String orderId) {
+        return orderRepository.findByOrderId(orderId).map(OrderEntity::getOrderStatus).orElse(null);
+    }
+
+    private static OrderCreatedEvent orderCreatedEvent(String orderId) {
+        return new OrderCreatedEvent(orderId, "product-1", USER_ID, 1, "address-1", OrderStatus.CREATED);
+    }
+
+    private static DomainEventMessage<?> domainEvent(String orderId, long sequenceNumber, Object payload) {
+        return new GenericDomainEventMessage<>("OrderAggregate", orderId, sequenceNumber, payload);
+    }
+
+    private static List<String> orderIds(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> UUID.randomUUID().toString())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,232 @@
+package com.gui.estore.ordersservice.deadline;
+
+import com.thoughtworks.xstream.XStream;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.axonframework.common.transaction.NoTransactionManager;
+import org.axonframework.deadline.DeadlineMessage;
+import org.axonframework.deadline.quartz.QuartzDeadlineManager;
+import org.axonframework.messaging.Message;
+import org.axonframework.messaging.ScopeAware;
+import org.axonframework.messaging.ScopeDescriptor;
+import org.axonframework.modelling.saga.SagaScopeDescriptor;
+import org.axonframework.serialization.xml.XStreamSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.quartz.Scheduler;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.scheduling.quartz.SchedulerFactoryBean;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// orders.deadlines.manager=quartz sobre un job store JDBC en H2 (fichero, tablas QRTZ_ de Quartz) con la misma
+// configuración de Quartz que application-quartz.properties: los Deadline sobreviven a un reinicio, y con 100k
+// programados se mide el ritmo de alta y baja y el retraso de disparo (orders.deadline.firing.lag)
+class QuartzDeadlineManagerTest {
+
+    private static final String PAYMENT_DEADLINE = "payment-processing-deadline";
+    private static final String SHIPMENT_DEADLINE = "shipment-processing-deadline";
+    // QuartzSchedulerThread dispara el trigger cuando le quedan menos de 2 ms
+    private static final Duration EARLY_FIRING = Duration.ofMillis(5);
+
+    private final ScopeDescriptor sagaScope = new SagaScopeDescriptor("OrderSaga", "saga-1");
+    private final RecordingScopeAware scopeAware = new RecordingScopeAware();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<SchedulerFactoryBean> schedulers = new ArrayList<>();
+
+    @TempDir
+    Path dbDirectory;
+
+    private HikariDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:file:" + dbDirectory.resolve("quartz"));
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(16);
+
+        // el mismo script que spring.quartz.jdbc.initialize-schema
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+                new ClassPathResource("org/quartz/impl/jdbcjobstore/tables_h2.sql"));
+        populator.setCommentPrefixes("#", "--");
+        populator.execute(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (SchedulerFactoryBean scheduler : schedulers) scheduler.destroy();
+        dataSource.close();
+    }
+
+    @Test
+    void firesPersistedDeadlinesAfterARestart() throws Exception {
+
+        QuartzDeadlineManager deadlineManager = deadlineManager(startScheduler("orders-deadlines-1"));
+
+        Instant triggerTime = Instant.now().plusSeconds(3);
+        List<String> scheduleIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) scheduleIds.add(deadlineManager.schedule(triggerTime, PAYMENT_DEADLINE, i, sagaScope));
+        for (int i = 1; i < 10; i += 2) deadlineManager.cancelSchedule(PAYMENT_DEADLINE, scheduleIds.get(i));
+
+        // la instancia se para antes del vencimiento y arranca otra sobre la misma BD
+        schedulers.remove(0).destroy();
+        scopeAware.expect(5);
+        deadlineManager(startScheduler("orders-deadlines-2"));
+
+        assertTrue(scopeAware.await(30), "no se han disparado los Deadlines guardados: " + scopeAware.fired.keySet());
+        Thread.sleep(500);
+
+        assertEquals(List.of(0, 2, 4, 6, 8), scopeAware.fired.keySet().stream().sorted().collect(Collectors.toList()));
+        scopeAware.fired.values().forEach(fired ->
+                assertFalse(fired.firedAt.plus(EARLY_FIRING).isBefore(triggerTime), "se ha disparado antes de tiempo"));
+    }
+
+    @Test
+    void schedulesAndCancelsOneHundredThousandDeadlinesAndFiresOnTimeWithThemPending() throws Exception {
+
+        Scheduler scheduler = startScheduler("orders-deadlines");
+        QuartzDeadlineManager deadlineManager = deadlineManager(scheduler);
+
+        // 100k Deadlines de pago a una hora vista, como órdenes esperando a payments-service
+        int deadlines = 100_000;
+        Instant later = Instant.now().plus(Duration.ofHours(1));
+        List<String> scheduleIds = new ArrayList<>(deadlines);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < deadlines; i++) scheduleIds.add(deadlineManager.schedule(later, PAYMENT_DEADLINE, i, sagaScope));
+        long scheduleNanos = System.nanoTime() - start;
+
+        // la mitad se cancela (órdenes pagadas)
+        start = System.nanoTime();
+        for (int i = 1; i < deadlines; i += 2) deadlineManager.cancelSchedule(PAYMENT_DEADLINE, scheduleIds.get(i));
+        long cancelNanos = System.nanoTime() - start;
+
+        assertEquals(deadlines / 2, scheduler.getTriggerKeys(GroupMatcher.triggerGroupEquals(PAYMENT_DEADLINE)).size());
+
+        // con 50k pendientes, 1000 Deadlines que vencen repartidos en un segundo
+        int due = 1_000;
+        scopeAware.expect(due);
+        Instant firstDue = Instant.now().plusSeconds(2);
+        for (int i = 0; i < due; i++) {
+            deadlineManager.schedule(firstDue.plusMillis(i % 1000), SHIPMENT_DEADLINE, deadlines + i, sagaScope);
+        }
+
+        assertTrue(scopeAware.await(60), "no se han disparado todos los Deadlines: " + scopeAware.fired.size());
+
+        List<Long> lagMillis = scopeAware.fired.values().stream()
+                .map(fired -> Duration.between(fired.triggerTime, fired.firedAt).toMillis())
+                .sorted()
+                .collect(Collectors.toList());
+        long p99 = lagMillis.get((int) (lagMillis.size() * 0.99) - 1);
+        Timer firingLag = meterRegistry.get("orders.deadline.firing.lag").tag("deadline", SHIPMENT_DEADLINE).timer();
+
+        double schedulePerSecond = deadlines / (scheduleNanos / 1e9);
+        double cancelPerSecond = deadlines / 2 / (cancelNanos / 1e9);
+        System.out.printf("Quartz JDBC (H2): %.0f altas/s, %.0f bajas/s; retraso de disparo con %d pendientes: "
+                        + "p50 %d ms, p99 %d ms, máx %d ms (listener: media %.1f ms, máx %.1f ms)%n",
+                schedulePerSecond, cancelPerSecond, deadlines / 2, lagMillis.get(lagMillis.size() / 2), p99,
+                lagMillis.get(lagMillis.size() - 1), firingLag.mean(TimeUnit.MILLISECONDS), firingLag.max(TimeUnit.MILLISECONDS));
+
+        assertEquals(due, firingLag.count());
+        assertTrue(lagMillis.get(0) >= -EARLY_FIRING.toMillis(), "se ha disparado antes de tiempo: " + lagMillis.get(0) + " ms");
+        assertTrue(p99 < 2_000, "p99 del retraso de disparo " + p99 + " ms");
+        // cada alta/baja es una transacción con varias filas en las tablas QRTZ_: muy por debajo del TimingWheel,
+        // pero las órdenes no llegan a este ritmo
+        assertTrue(schedulePerSecond > 500, "altas/s: " + schedulePerSecond);
+        assertTrue(cancelPerSecond > 500, "bajas/s: " + cancelPerSecond);
+    }
+
+    // SchedulerFactoryBean sobre el DataSource, como lo crea QuartzAutoConfiguration, con el listener de DeadlineConfig
+    private Scheduler startScheduler(String schedulerName) throws Exception {
+
+        Properties quartzProperties = new Properties();
+        quartzProperties.setProperty("org.quartz.scheduler.instanceId", "AUTO");
+        quartzProperties.setProperty("org.quartz.jobStore.isClustered", "true");
+        quartzProperties.setProperty("org.quartz.jobStore.clusterCheckinInterval", "10000");
+        quartzProperties.setProperty("org.quartz.jobStore.acquireTriggersWithinLock", "true");
+        quartzProperties.setProperty("org.quartz.scheduler.batchTriggerAcquisitionMaxCount", "50");
+        quartzProperties.setProperty("org.quartz.scheduler.batchTriggerAcquisitionFireAheadTimeWindow", "1000");
+        quartzProperties.setProperty("org.quartz.threadPool.threadCount", "10");
+
+        SchedulerFactoryBean schedulerFactoryBean = new SchedulerFactoryBean();
+        schedulerFactoryBean.setSchedulerName(schedulerName);
+        schedulerFactoryBean.setDataSource(dataSource);
+        schedulerFactoryBean.setQuartzProperties(quartzProperties);
+        schedulerFactoryBean.setGlobalTriggerListeners(new DeadlineFiringLagListener(meterRegistry));
+        schedulerFactoryBean.afterPropertiesSet();
+        schedulerFactoryBean.start();
+        schedulers.add(schedulerFactoryBean);
+
+        return schedulerFactoryBean.getObject();
+    }
+
+    private QuartzDeadlineManager deadlineManager(Scheduler scheduler) {
+
+        XStream xStream = new XStream();
+        xStream.allowTypesByWildcard(new String[]{"org.axonframework.**", "com.gui.**"});
+
+        return QuartzDeadlineManager.builder()
+                .scheduler(scheduler)
+                .scopeAwareProvider(scope -> Stream.of(scopeAware))
+                .transactionManager(NoTransactionManager.instance())
+                .serializer(XStreamSerializer.builder().xStream(xStream).build())
+                .build();
+    }
+
+    private static class FiredDeadline {
+
+        private final Instant triggerTime;
+        private final Instant firedAt;
+
+        private FiredDeadline(Instant triggerTime, Instant firedAt) {
+            this.triggerTime = triggerTime;
+            this.firedAt = firedAt;
+        }
+    }
+
+    // hace de SAGA: guarda cada Deadline que le llega por su payload, con la hora programada (timestamp del mensaje)
+    private static class RecordingScopeAware implements ScopeAware {
+
+        private final Map<Integer, FiredDeadline> fired = new ConcurrentHashMap<>();
+        private volatile CountDownLatch latch = new CountDownLatch(0);
+
+        private void expect(int deadlines) {
+            latch = new CountDownLatch(deadlines);
+        }
+
+        private boolean await(int seconds) throws InterruptedException {
+            return latch.await(seconds, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public boolean canResolve(ScopeDescriptor scopeDescription) {
+            return true;
+        }
+
+        @Override
+        public void send(Message<?> message, ScopeDescriptor scopeDescription) {
+            DeadlineMessage<?> deadlineMessage = (DeadlineMessage<?>) message;
+            fired.put((Integer) deadlineMessage.getPayload(), new FiredDeadline(deadlineMessage.getTimestamp(), Instant.now()));
+            latch.countDown();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.gui.estore.ordersservice.deadline;
+
+import org.axonframework.deadline.DeadlineMessage;
+import org.axonframework.messaging.Message;
+import org.axonframework.messaging.ScopeAware;
+import org.axonframework.messaging.ScopeDescriptor;
+import org.axonframework.modelling.saga.SagaScopeDescriptor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// programar, cancelar y disparar Deadlines en TimingWheelDeadlineManager, también con 100k Deadlines
+class TimingWheelDeadlineManagerTest {
+
+    private static final String PAYMENT_DEADLINE = "payment-processing-deadline";
+    private static final String SHIPMENT_DEADLINE = "shipment-processing-deadline";
+
+    private final ScopeDescriptor sagaScope = new SagaScopeDescriptor("OrderSaga", "saga-1");
+    private final RecordingScopeAware scopeAware = new RecordingScopeAware();
+    private TimingWheelDeadlineManager deadlineManager;
+
+    @BeforeEach
+    void setUp() {
+        deadlineManager = TimingWheelDeadlineManager.builder()
+                .scopeAwareProvider(scope -> Stream.of(scopeAware))
+                .tickDuration(Duration.ofMillis(10))
+                .ticksPerWheel(64)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        deadlineManager.shutdown();
+    }
+
+    @Test
+    void firesTheDeadlineNotBeforeItsTriggerTime() throws InterruptedException {
+
+        scopeAware.expect(1);
+        Instant triggerTime = Instant.now().plusMillis(100);
+
+        String scheduleId = deadlineManager.schedule(triggerTime, PAYMENT_DEADLINE, "order-1", sagaScope);
+
+        assertTrue(scopeAware.await(5), "el Deadline no se ha disparado");
+
+        FiredDeadline fired = scopeAware.fired.get(scheduleId);
+        assertNotNull(fired);
+        assertEquals(PAYMENT_DEADLINE, fired.deadlineName);
+        assertEquals("order-1", fired.payload);
+        assertFalse(fired.firedAt.isBefore(triggerTime), "se ha disparado antes de tiempo");
+    }
+
+    @Test
+    void firesDeadlinesBeyondOneTurnOfTheWheel() throws InterruptedException {
+
+        // 64 casillas de 10 ms: una vuelta son 640 ms
+        scopeAware.expect(1);
+        Instant triggerTime = Instant.now().plusMillis(900);
+
+        String scheduleId = deadlineManager.schedule(triggerTime, PAYMENT_DEADLINE, "order-1", sagaScope);
+
+        assertTrue(scopeAware.await(5), "el Deadline no se ha disparado");
+        assertFalse(scopeAware.fired.get(scheduleId).firedAt.isBefore(triggerTime), "se ha disparado antes de tiempo");
+    }
+
+    @Test
+    void doesNotFireCancelledDeadlines() throws InterruptedException {
+
+        String cancelled = deadlineManager.schedule(Duration.ofMillis(50), PAYMENT_DEADLINE, "order-1", sagaScope);
+        deadlineManager.cancelSchedule(PAYMENT_DEADLINE, cancelled);
+
+        // otro nombre con el mismo scheduleId no lo cancela
+        scopeAware.expect(1);
+        String kept = deadlineManager.schedule(Duration.ofMillis(100), SHIPMENT_DEADLINE, "order-1", sagaScope);
+        deadlineManager.cancelSchedule(PAYMENT_DEADLINE, kept);
+
+        assertTrue(scopeAware.await(5), "el Deadline no cancelado no se ha disparado");
+        Thread.sleep(100);
+
+        assertEquals(Set.of(kept), scopeAware.fired.keySet());
+    }
+
+    @Test
+    void cancelAllOnlyCancelsDeadlinesWithThatName() throws InterruptedException {
+
+        deadlineManager.schedule(Duration.ofMillis(50), PAYMENT_DEADLINE, "order-1", sagaScope);
+        deadlineManager.schedule(Duration.ofMillis(50), PAYMENT_DEADLINE, "order-2", sagaScope);
+        scopeAware.expect(1);
+        String shipment = deadlineManager.schedule(Duration.ofMillis(100), SHIPMENT_DEADLINE, "order-1", sagaScope);
+
+        deadlineManager.cancelAll(PAYMENT_DEADLINE);
+
+        assertTrue(scopeAware.await(5), "el Deadline de envío no se ha disparado");
+        Thread.sleep(100);
+
+        assertEquals(Set.of(shipment), scopeAware.fired.keySet());
+    }
+
+    @Test
+    void schedulesAndCancelsOneHundredThousandDeadlines() throws InterruptedException {
+
+        int deadlines = 100_000;
+        scopeAware.expect(deadlines / 2);
+
+        List<String> cancelled = new ArrayList<>(deadlines / 2);
+        Instant now = Instant.now();
+
+        // repartidos en medio segundo a partir de 200 ms, la mitad se cancela antes de vencer
+        long start = System.nanoTime();
+        for (int i = 0; i < deadlines; i++) {
+            String scheduleId = deadlineManager.schedule(now.plusMillis(200 + i % 500), PAYMENT_DEADLINE, i, sagaScope);
+            if (i % 2 == 1) {
+                deadlineManager.cancelSchedule(PAYMENT_DEADLINE, scheduleId);
+                cancelled.add(scheduleId);
+            }
+        }
+        long scheduleMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(scopeAware.await(30), "no se han disparado todos los Deadlines: " + scopeAware.fired.size());
+        Thread.sleep(100);
+
+        assertEquals(deadlines / 2, scopeAware.fired.size());
+        cancelled.forEach(scheduleId -> assertFalse(scopeAware.fired.containsKey(scheduleId), "cancelado y disparado: " + scheduleId));
+        // programar y cancelar es O(1): 100k altas y 50k bajas no deberían acercarse al primer vencimiento
+        assertTrue(scheduleMillis < 5_000, "programar y cancelar ha tardado " + scheduleMillis + " ms");
+    }
+
+    private static class FiredDeadline {
+
+        private final String deadlineName;
+        private final Object payload;
+        private final Instant firedAt;
+
+        private FiredDeadline(String deadlineName, Object payload, Instant firedAt) {
+            this.deadlineName = deadlineName;
+            this.payload = payload;
+            this.firedAt = firedAt;
+        }
+    }
+
+    // hace de SAGA: guarda cada Deadline que le llega por scheduleId
+    private static class RecordingScopeAware implements ScopeAware {
+
+        private final Map<String, FiredDeadline> fired = new ConcurrentHashMap<>();
+        private volatile CountDownLatch latch = new CountDownLatch(0);
+
+        private void expect(int deadlines) {
+            latch = new CountDownLatch(deadlines);
+        }
+
+        private boolean await(int seconds) throws InterruptedException {
+            return latch.await(seconds, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public boolean canResolve(ScopeDescriptor scopeDescription) {
+            return true;
+        }
+
+        @Override
+        public void send(Message<?> message, ScopeDescriptor scopeDescription) {
+            DeadlineMessage<?> deadlineMessage = (DeadlineMessage<?>) message;
+            fired.put(deadlineMessage.getIdentifier(),
+                    new FiredDeadline(deadlineMessage.getDeadlineName(), deadlineMessage.getPayload(), Instant.now()));
+            latch.countDown();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.gui.estore.ordersservice.queries.rest;
+
+import com.gui.estore.ordersservice.exceptions.OrderErrorHandler;
+import com.gui.estore.ordersservice.model.OrderRollups;
+import com.gui.estore.ordersservice.model.RollupGranularity;
+import com.gui.estore.ordersservice.model.RollupProgress;
+import com.gui.estore.ordersservice.queries.FindOrderRollupsQuery;
+import com.gui.estore.ordersservice.queries.OrderExporter;
+import org.axonframework.queryhandling.QueryGateway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// GET /orders/analytics: rango y top no válidos son 400 sin lanzar la QUERY, la respuesta lleva el progreso del procesador
+class OrderQueryControllerTest {
+
+    private QueryGateway queryGateway;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+
+        queryGateway = mock(QueryGateway.class);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(
+                        new OrderQueryController(queryGateway, mock(OrderExporter.class), new MockEnvironment()))
+                .setControllerAdvice(new OrderErrorHandler())
+                .build();
+    }
+
+    @Test
+    void rejectsARangeThatEndsBeforeItStarts() throws Exception {
+
+        mockMvc.perform(get("/orders/analytics")
+                        .param("from", "2022-01-02T00:00:00Z")
+                        .param("to", "2022-01-01T00:00:00Z"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(queryGateway);
+    }
+
+    @Test
+    void rejectsANegativeTop() throws Exception {
+
+        mockMvc.perform(get("/orders/analytics").param("top", "-1"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(queryGateway);
+    }
+
+    @Test
+    void returnsTheRollupsWithTheProcessorProgress() throws Exception {
+
+        Instant from = Instant.parse("2022-01-01T00:00:00Z");
+        Instant to = Instant.parse("2022-01-02T00:00:00Z");
+        doReturn(CompletableFuture.completedFuture(new OrderRollups(RollupGranularity.HOUR, from, to, 10, 6, 2, 0.75,
+                List.of(), List.of(), new RollupProgress(false, false, 42L))))
+                .when(queryGateway).query(any(FindOrderRollupsQuery.class), eq(OrderRollups.class));
+
+        mockMvc.perform(get("/orders/analytics")
+                        .param("granularity", "HOUR")
+                        .param("from", from.toString())
+                        .param("to", to.toString())
+                        .param("top", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(10))
+                .andExpect(jsonPath("$.progress.caughtUp").value(false))
+                .andExpect(jsonPath("$.progress.position").value(42));
+    }
+}
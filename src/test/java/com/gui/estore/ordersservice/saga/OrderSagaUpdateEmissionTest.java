@@ -0,0 +1,147 @@
+package com.gui.estore.ordersservice.saga;
+
+import com.gui.estore.ordersservice.core.events.OrderApprovedEvent;
+import com.gui.estore.ordersservice.core.events.OrderRejectedEvent;
+import com.gui.estore.ordersservice.model.OrderStatus;
+import com.gui.estore.ordersservice.model.OrderSummary;
+import com.gui.estore.ordersservice.queries.FindOrderQuery;
+import org.axonframework.messaging.responsetypes.ResponseTypes;
+import org.axonframework.queryhandling.DefaultQueryGateway;
+import org.axonframework.queryhandling.QueryGateway;
+import org.axonframework.queryhandling.SimpleQueryBus;
+import org.axonframework.queryhandling.SimpleQueryUpdateEmitter;
+import org.axonframework.queryhandling.SubscriptionQueryResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// OrderSaga emite el OrderSummary final solo a la suscripción FindOrderQuery de su propia orden,
+// aunque haya muchas suscripciones abiertas y las órdenes terminen a la vez en varios hilos
+// cada emit evalúa el predicado contra todas las suscripciones abiertas (O(N)): se mide lo que tarda con 2000
+class OrderSagaUpdateEmissionTest {
+
+    private static final int ORDERS = 2_000;
+
+    private SimpleQueryUpdateEmitter queryUpdateEmitter;
+    private QueryGateway queryGateway;
+    private final List<SubscriptionQueryResult<OrderSummary, OrderSummary>> subscriptions = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+
+        queryUpdateEmitter = SimpleQueryUpdateEmitter.builder().build();
+        SimpleQueryBus queryBus = SimpleQueryBus.builder()
+                .queryUpdateEmitter(queryUpdateEmitter)
+                .build();
+
+        // respuesta inicial de la suscripción, como OrderQueryHandler.findOrder
+        queryBus.subscribe(FindOrderQuery.class.getName(), OrderSummary.class, queryMessage ->
+                new OrderSummary(((FindOrderQuery) queryMessage.getPayload()).getOrderId(), OrderStatus.CREATED, ""));
+
+        queryGateway = DefaultQueryGateway.builder()
+                .queryBus(queryBus)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        subscriptions.forEach(SubscriptionQueryResult::close);
+    }
+
+    @Test
+    void eachSubscriptionOnlyReceivesItsOwnOrder() throws Exception {
+
+        // suscripciones abiertas antes de que SAGA termine ninguna orden, como en createOrder
+        // todo lo que llegue a cada suscripción hasta un rato después de la última emisión
+        CompletableFuture<Boolean> emitted = new CompletableFuture<>();
+        Mono<Boolean> window = Mono.fromFuture(emitted).delayElement(Duration.ofMillis(500));
+        Map<String, CompletableFuture<List<OrderSummary>>> updates = new LinkedHashMap<>();
+        for (int i = 0; i < ORDERS; i++) {
+            String orderId = UUID.randomUUID().toString();
+            SubscriptionQueryResult<OrderSummary, OrderSummary> subscription = queryGateway.subscriptionQuery(
+                    new FindOrderQuery(orderId),
+                    ResponseTypes.instanceOf(OrderSummary.class),
+                    ResponseTypes.instanceOf(OrderSummary.class));
+            subscriptions.add(subscription);
+
+            updates.put(orderId, subscription.updates().takeUntilOther(window).collectList().toFuture());
+        }
+
+        Queue<Long> emitNanos = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> emissions = new ArrayList<>();
+            int i = 0;
+            for (String orderId : updates.keySet()) {
+                boolean approved = i++ % 2 == 0;
+                emissions.add(executor.submit(() -> {
+                    // una instancia de SAGA por orden, como en producción
+                    OrderSaga orderSaga = orderSaga();
+                    long start = System.nanoTime();
+                    if (approved) {
+                        orderSaga.handle(new OrderApprovedEvent(orderId, OrderStatus.APPROVED), Instant.now());
+                    } else {
+                        orderSaga.handle(new OrderRejectedEvent(orderId, "Producto sin stock", OrderStatus.REJECTED), Instant.now());
+                    }
+                    emitNanos.add(System.nanoTime() - start);
+                }));
+            }
+            for (Future<?> emission : emissions) {
+                emission.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+            emitted.complete(true);
+        }
+
+        List<Long> emitMicros = emitNanos.stream()
+                .map(TimeUnit.NANOSECONDS::toMicros)
+                .sorted()
+                .collect(Collectors.toList());
+        long p99 = emitMicros.get((int) (emitMicros.size() * 0.99) - 1);
+        System.out.printf("emit de OrderSummary con %d suscripciones abiertas: p50 %d µs, p99 %d µs, máx %d µs%n",
+                ORDERS, emitMicros.get(emitMicros.size() / 2), p99, emitMicros.get(emitMicros.size() - 1));
+
+        assertEquals(ORDERS, emitMicros.size());
+        // margen amplio para máquinas de CI cargadas: recorrer 2000 predicados son decenas de µs
+        assertTrue(p99 < 50_000, "p99 del emit " + p99 + " µs");
+
+        int i = 0;
+        for (Map.Entry<String, CompletableFuture<List<OrderSummary>>> entry : updates.entrySet()) {
+            String orderId = entry.getKey();
+            OrderSummary expected = i++ % 2 == 0
+                    ? new OrderSummary(orderId, OrderStatus.APPROVED, "ORDER APPROVED")
+                    : new OrderSummary(orderId, OrderStatus.REJECTED, "Producto sin stock");
+
+            assertEquals(List.of(expected), entry.getValue().get(10, TimeUnit.SECONDS), "orden " + orderId);
+        }
+    }
+
+    // los handlers de fin de SAGA solo usan el emitter: sin Deadlines programados ni OrderCreatedEvent no tocan el resto
+    private OrderSaga orderSaga() {
+        OrderSaga orderSaga = new OrderSaga();
+        ReflectionTestUtils.setField(orderSaga, "queryUpdateEmitter", queryUpdateEmitter);
+        return orderSaga;
+    }
+}
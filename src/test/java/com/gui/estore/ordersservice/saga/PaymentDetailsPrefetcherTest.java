@@ -0,0 +1,61 @@
+package com.gui.estore.ordersservice.saga;
+
+import com.gui.estore.core.model.User;
+import com.gui.estore.core.queries.FetchUserPaymentDetailsQuery;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.axonframework.messaging.responsetypes.ResponseType;
+import org.axonframework.queryhandling.QueryGateway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// una sola FetchUserPaymentDetailsQuery por orden: el paso de envío reutiliza la respuesta del paso de pago
+// (sin la caché por usuario, que está desactivada por defecto)
+class PaymentDetailsPrefetcherTest {
+
+    private QueryGateway queryGateway;
+    private PaymentDetailsPrefetcher paymentDetailsPrefetcher;
+
+    @BeforeEach
+    void setUp() {
+        queryGateway = mock(QueryGateway.class);
+        UserPaymentDetailsCache userPaymentDetailsCache = new UserPaymentDetailsCache(queryGateway, new SimpleMeterRegistry(),
+                false, 1000, Duration.ofSeconds(30));
+        paymentDetailsPrefetcher = new PaymentDetailsPrefetcher(userPaymentDetailsCache, 1000,
+                Duration.ofMinutes(2), Duration.ofMinutes(10));
+    }
+
+    @Test
+    void theShipmentStepReusesThePaymentDetailsOfThePaymentStep() throws Exception {
+
+        User user = mock(User.class);
+        doReturn(CompletableFuture.completedFuture(user))
+                .when(queryGateway).query(any(FetchUserPaymentDetailsQuery.class), any(ResponseType.class));
+
+        paymentDetailsPrefetcher.prefetch("order-1", "user-1");
+        assertSame(user, paymentDetailsPrefetcher.take("order-1", "user-1").get());
+        assertSame(user, paymentDetailsPrefetcher.takePaid("order-1", "user-1").get());
+
+        verify(queryGateway, times(1)).query(any(FetchUserPaymentDetailsQuery.class), any(ResponseType.class));
+    }
+
+    @Test
+    void theShipmentStepQueriesWhenThePaymentStepRanElsewhere() throws Exception {
+
+        User user = mock(User.class);
+        doReturn(CompletableFuture.completedFuture(user))
+                .when(queryGateway).query(any(FetchUserPaymentDetailsQuery.class), any(ResponseType.class));
+
+        // el pago se hizo en otra instancia o los datos ya se usaron
+        assertSame(user, paymentDetailsPrefetcher.takePaid("order-1", "user-1").get());
+        assertSame(user, paymentDetailsPrefetcher.takePaid("order-1", "user-1").get());
+
+        verify(queryGateway, times(2)).query(any(FetchUserPaymentDetailsQuery.class), any(ResponseType.class));
+    }
+}
@@ -0,0 +1,129 @@
+package com.gui.estore.ordersservice.saga;
+
+import com.gui.estore.core.model.User;
+import com.gui.estore.core.queries.FetchUserPaymentDetailsQuery;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.axonframework.messaging.responsetypes.ResponseType;
+import org.axonframework.queryhandling.QueryGateway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// single-flight e invalidate de la caché de FetchUserPaymentDetailsQuery; un fallo de la QUERY no deja la entrada
+// en vuelo colgada ni se guarda en caché
+class UserPaymentDetailsCacheTest {
+
+    private QueryGateway queryGateway;
+    private UserPaymentDetailsCache userPaymentDetailsCache;
+
+    @BeforeEach
+    void setUp() {
+        queryGateway = mock(QueryGateway.class);
+        userPaymentDetailsCache = new UserPaymentDetailsCache(queryGateway, new SimpleMeterRegistry(),
+                true, 1000, Duration.ofSeconds(30));
+    }
+
+    @Test
+    void recoversWhenTheQueryCannotBeSent() throws Exception {
+
+        User user = mock(User.class);
+        doThrow(new IllegalStateException("sin QueryBus"))
+                .doReturn(CompletableFuture.completedFuture(user))
+                .when(queryGateway).query(any(FetchUserPaymentDetailsQuery.class), any(ResponseType.class));
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> userPaymentDetailsCache.get("user-1").get());
+        assertTrue(failure.getCause() instanceof IllegalStateException);
+
+        // la siguiente orden del usuario lanza una QUERY nueva en vez de esperar a la que falló
+        assertSame(user, userPaymentDetailsCache.get("user-1").get());
+        assertSame(user, userPaymentDetailsCache.get("user-1").get());
+
+        verify(queryGateway, times(2)).query(any(FetchUserPaymentDetailsQuery.class), any(ResponseType.class));
+    }
+
+    @Test
+    void doesNotCacheFailedQueries() throws Exception {
+
+        User user = mock(User.class);
+        doReturn(CompletableFuture.failedFuture(new IllegalStateException("payments-service caído")))
+                .doReturn(CompletableFuture.completedFuture(user))
+                .when(queryGateway).query(any(FetchUserPaymentDetailsQuery.class), any(ResponseType.class));
+
+        assertThrows(ExecutionException.class, () -> userPaymentDetailsCache.get("user-1").get());
+        assertSame(user, userPaymentDetailsCache.get("user-1").get());
+    }
+
+    @Test
+    void concurrentOrdersOfAUserShareOneQuery() throws Exception {
+
+        User user = mock(User.class);
+        CompletableFuture<User> pending = new CompletableFuture<>();
+        doReturn(pending).when(queryGateway).query(any(FetchUserPaymentDetailsQuery.class), any(ResponseType.class));
+
+        CompletableFuture<User> first = userPaymentDetailsCache.get("user-1");
+        CompletableFuture<User> second = userPaymentDetailsCache.get("user-1");
+        pending.complete(user);
+
+        assertSame(user, first.get());
+        assertSame(user, second.get());
+        // la tercera sale de la caché
+        assertSame(user, userPaymentDetailsCache.get("user-1").get());
+
+        verify(queryGateway, times(1)).query(any(FetchUserPaymentDetailsQuery.class), any(ResponseType.class));
+    }
+
+    @Test
+    void invalidateDropsTheCachedValue() throws Exception {
+
+        User before = mock(User.class);
+        User after = mock(User.class);
+        doReturn(CompletableFuture.completedFuture(before))
+                .doReturn(CompletableFuture.completedFuture(after))
+                .when(queryGateway).query(any(FetchUserPaymentDetailsQuery.class), any(ResponseType.class));
+
+        assertSame(before, userPaymentDetailsCache.get("user-1").get());
+        assertSame(before, userPaymentDetailsCache.get("user-1").get());
+
+        userPaymentDetailsCache.invalidate("user-1");
+
+        assertSame(after, userPaymentDetailsCache.get("user-1").get());
+        verify(queryGateway, times(2)).query(any(FetchUserPaymentDetailsQuery.class), any(ResponseType.class));
+    }
+
+    @Test
+    void invalidateDropsTheQueryInFlightAndItsStaleResult() throws Exception {
+
+        User before = mock(User.class);
+        User after = mock(User.class);
+        CompletableFuture<User> stale = new CompletableFuture<>();
+        CompletableFuture<User> fresh = new CompletableFuture<>();
+        doReturn(stale)
+                .doReturn(fresh)
+                .when(queryGateway).query(any(FetchUserPaymentDetailsQuery.class), any(ResponseType.class));
+
+        CompletableFuture<User> waiting = userPaymentDetailsCache.get("user-1");
+
+        userPaymentDetailsCache.invalidate("user-1");
+
+        // después del cambio no se une a la QUERY que ya estaba en vuelo
+        CompletableFuture<User> afterChange = userPaymentDetailsCache.get("user-1");
+        assertNotSame(waiting, afterChange);
+
+        // la respuesta antigua llega la última y aun así no sustituye a la nueva en caché
+        fresh.complete(after);
+        stale.complete(before);
+
+        assertSame(before, waiting.get());
+        assertSame(after, afterChange.get());
+        assertSame(after, userPaymentDetailsCache.get("user-1").get());
+
+        verify(queryGateway, times(2)).query(any(FetchUserPaymentDetailsQuery.class), any(ResponseType.class));
+    }
+}